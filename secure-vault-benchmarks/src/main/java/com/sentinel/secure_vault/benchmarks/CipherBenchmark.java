@@ -0,0 +1,77 @@
+package com.sentinel.secure_vault.benchmarks;
+
+import com.sentinel.secure_vault.util.AESUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Per-operation cost of AES before and after cipher pooling / key reuse.
+// "fresh*" reproduce the old code path (Cipher.getInstance + new SecretKeySpec per call),
+// "pooled*" go through AESUtil. Small payloads are where the fixed per-call cost shows.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CipherBenchmark {
+
+    @Param({"16", "4096", "65536"})
+    int size;
+
+    String base64Key;
+    byte[] plain;
+    byte[] encrypted;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyGenerator keyGen = KeyGenerator.getInstance("AES");
+        keyGen.init(256);
+        base64Key = Base64.getEncoder().encodeToString(keyGen.generateKey().getEncoded());
+
+        plain = new byte[size];
+        new Random(1).nextBytes(plain);
+        encrypted = AESUtil.encrypt(plain, base64Key);
+    }
+
+    @Benchmark
+    public byte[] freshCipherDecrypt() throws Exception {
+        SecretKeySpec keySpec = new SecretKeySpec(Base64.getDecoder().decode(base64Key), "AES");
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.DECRYPT_MODE, keySpec);
+        return cipher.doFinal(encrypted);
+    }
+
+    @Benchmark
+    public byte[] pooledCipherDecrypt() throws Exception {
+        return AESUtil.decrypt(encrypted, base64Key);
+    }
+
+    @Benchmark
+    public byte[] freshCipherEncrypt() throws Exception {
+        SecretKeySpec keySpec = new SecretKeySpec(Base64.getDecoder().decode(base64Key), "AES");
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, keySpec);
+        return cipher.doFinal(plain);
+    }
+
+    @Benchmark
+    public byte[] pooledCipherEncrypt() throws Exception {
+        return AESUtil.encrypt(plain, base64Key);
+    }
+}
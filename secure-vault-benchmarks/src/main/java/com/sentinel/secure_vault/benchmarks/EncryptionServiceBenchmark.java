@@ -0,0 +1,76 @@
+package com.sentinel.secure_vault.benchmarks;
+
+import com.sentinel.secure_vault.service.CiphertextSource;
+import com.sentinel.secure_vault.service.EncryptionService;
+import com.sentinel.secure_vault.service.SntlHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Sequential (request-thread) .sntl encryption and decryption across file sizes, from a single
+// partial segment up to a file just under the parallel threshold. Large files on the crypto pool
+// are covered by ParallelCryptoBenchmark. Output goes to a null stream, so only crypto is measured.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncryptionServiceBenchmark {
+
+    @Param({"1024", "65536", "1048576", "4194304"})
+    int size;
+
+    EncryptionService encryptionService;
+    SecretKey key;
+    String base64Key;
+    byte[] plain;
+    byte[] encrypted;
+    CiphertextSource encryptedSource;
+
+    @Setup
+    public void setUp() throws Exception {
+        encryptionService = new EncryptionService();
+        key = encryptionService.generateKey();
+        base64Key = encryptionService.encodeKey(key);
+
+        plain = new byte[size];
+        new Random(1).nextBytes(plain);
+        encrypted = encryptionService.encrypt(plain, key);
+        encryptedSource = CiphertextSource.of(encrypted);
+    }
+
+    @Benchmark
+    public long encryptStream() throws Exception {
+        return encryptionService.encrypt(new ByteArrayInputStream(plain), OutputStream.nullOutputStream(), key);
+    }
+
+    @Benchmark
+    public byte[] encryptBytes() throws Exception {
+        return encryptionService.encrypt(plain, key);
+    }
+
+    @Benchmark
+    public void decryptRange() throws Exception {
+        encryptionService.decryptRange(encryptedSource, base64Key, (int) SntlHeader.VERSION_1, 0, size - 1, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public byte[] decryptBytes() throws Exception {
+        return encryptionService.decrypt(encrypted, base64Key);
+    }
+}
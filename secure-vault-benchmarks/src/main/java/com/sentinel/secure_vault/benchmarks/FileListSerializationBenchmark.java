@@ -0,0 +1,73 @@
+package com.sentinel.secure_vault.benchmarks;
+
+import com.sentinel.secure_vault.dto.FileMetadataDto;
+import com.sentinel.secure_vault.model.SecureFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JSON serialization of a file list. "metadata" is what GET /api/files sends (FileMetadataDto rows,
+// built by the query); "entities" serializes the SecureFile rows themselves (owner not loaded),
+// which is what the endpoint used to send.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileListSerializationBenchmark {
+
+    @Param({"10", "200", "2000"})
+    int files;
+
+    JsonMapper mapper;
+    List<FileMetadataDto> metadata;
+    List<SecureFile> entities;
+
+    @Setup
+    public void setUp() {
+        mapper = JsonMapper.builder().build();
+        metadata = new ArrayList<>(files);
+        entities = new ArrayList<>(files);
+        LocalDateTime uploaded = LocalDateTime.of(2025, 1, 1, 12, 0);
+        for (int i = 0; i < files; i++) {
+            String name = "quarterly-report-" + i + ".pdf";
+            long size = 100_000L + i;
+            metadata.add(new FileMetadataDto((long) i, name, "application/pdf", size, uploaded.plusMinutes(i)));
+
+            SecureFile file = new SecureFile();
+            file.setId((long) i);
+            file.setFileName(name);
+            file.setFileType("application/pdf");
+            file.setPlainSize(size);
+            file.setEncryptedSize(size + 64);
+            file.setEncryptedKey("q2o3H6cX0Yb2uJp1n9b2ZfV7uJ8mC1w0xX3dN4kL5aE=");
+            file.setUploadTime(uploaded.plusMinutes(i));
+            entities.add(file);
+        }
+    }
+
+    @Benchmark
+    public byte[] metadata() {
+        return mapper.writeValueAsBytes(metadata);
+    }
+
+    @Benchmark
+    public byte[] entities() {
+        return mapper.writeValueAsBytes(entities);
+    }
+}
@@ -0,0 +1,125 @@
+package com.sentinel.secure_vault.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import com.sentinel.secure_vault.config.JwtAuthenticationFilter;
+import com.sentinel.secure_vault.service.CustomUserDetailsService;
+import com.sentinel.secure_vault.util.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JwtAuthenticationFilter on four threads, as in production (INFO level, so its per-request debug
+// lines are off). "consoleLogging" adds the two System.out.println calls the filter used to make
+// per request; the difference is the throughput the logging change gave back.
+// The console is the null device behind a PrintStream built like System.out (autoflush on every
+// line, small buffer), so this shows the lock and write-call cost without the terminal's.
+// "authenticated" carries a valid token (principal from a stub, no database); "public" has none.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class FilterPathBenchmark {
+
+    @Param({"authenticated", "public"})
+    String request;
+
+    JwtAuthenticationFilter filter;
+    String authorization;
+    PrintStream console;
+
+    @Setup
+    public void setUp() throws Exception {
+        // No logback-spring.xml outside Spring: use the production level instead of logback's DEBUG default
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+        JwtUtil jwtUtil = new JwtUtil();
+        filter = new JwtAuthenticationFilter(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "userDetailsService", new StubUserDetailsService());
+        authorization = request.equals("authenticated")
+                ? "Bearer " + jwtUtil.generateToken("benchmark@secure-vault.local") : null;
+
+        File nullDevice = new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+        console = new PrintStream(new BufferedOutputStream(new FileOutputStream(nullDevice), 128), true, StandardCharsets.UTF_8);
+    }
+
+    @State(Scope.Thread)
+    public static class Exchange {
+
+        MockHttpServletRequest request;
+        MockHttpServletResponse response;
+        FilterChain chain;
+
+        @Setup
+        public void setUp(FilterPathBenchmark benchmark) {
+            request = new MockHttpServletRequest("GET", "/api/files/page");
+            if (benchmark.authorization != null) {
+                request.addHeader("Authorization", benchmark.authorization);
+            }
+            response = new MockHttpServletResponse();
+            chain = (req, res) -> {
+            };
+        }
+    }
+
+    @Benchmark
+    public void asyncLogging(Exchange exchange) throws Exception {
+        filter.doFilter(exchange.request, exchange.response, exchange.chain);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void consoleLogging(Exchange exchange) throws Exception {
+        // What the filter printed before: the request line, and for public requests the "no token" line
+        console.println("🕵️ FILTER: Request to " + exchange.request.getRequestURI());
+        if (authorization == null) {
+            console.println("ℹ️ No Bearer token found (Normal for public pages)");
+        }
+        filter.doFilter(exchange.request, exchange.response, exchange.chain);
+        SecurityContextHolder.clearContext();
+    }
+
+    // Answers every lookup with the same principal
+    static class StubUserDetailsService extends CustomUserDetailsService {
+
+        StubUserDetailsService() {
+            super(1, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        }
+
+        @Override
+        public UserDetails loadUserByUsername(String email) {
+            return new User(email, "{noop}unused", List.of());
+        }
+    }
+}
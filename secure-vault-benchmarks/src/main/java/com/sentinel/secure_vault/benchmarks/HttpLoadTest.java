@@ -0,0 +1,223 @@
+package com.sentinel.secure_vault.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Closed-loop HTTP load against a running secure-vault: N clients, each sending the next request
+// as soon as the previous one answered, for a fixed time. Prints throughput and latency percentiles.
+//
+// Compares the platform-thread and virtual-thread servers, e.g.:
+//   VIRTUAL_THREADS=false java -jar secure-vault-<version>-exec.jar
+//   java -cp target/benchmarks.jar com.sentinel.secure_vault.benchmarks.HttpLoadTest http://localhost:8080 download 1000 60s
+//   (restart with VIRTUAL_THREADS=true and run the same command)
+//
+// Arguments: <base url> <login|upload|download|share|share-batch> [clients=1000] [duration=60s] [file size in KB=256]
+// The clients share one test user (registered on first use), so mostly server-side concurrency is measured.
+// 'share' first registers SHARE_RECIPIENTS users and uploads SHARE_FILES files, then every request
+// grants a new (file, recipient) pair; after 200,000 shares the pairs repeat ("already shared").
+// 'share-batch' uses the same setup and grants 10 files x 10 recipients (100 rows) per request;
+// after 2,000 requests the batches repeat.
+// For 'login', start the server with the login rate limits raised out of the way, e.g.
+//   --app.security.login-rate-limit.ip-capacity=100000000 --app.security.login-rate-limit.account-capacity=100000000
+// (429 answers caused by a full password-hashing queue are counted as errors).
+public class HttpLoadTest {
+
+    private static final String EMAIL = "loadtest@secure-vault.local";
+    private static final String PASSWORD = "load-test-password";
+    private static final int SHARE_RECIPIENTS = 200;
+    private static final int SHARE_FILES = 1000;
+    private static final int BATCH = 10;
+
+    private final HttpClient http;
+    private final String baseUrl;
+    private final byte[] file;
+    private String token;
+    private String fileId;
+    private final List<String> fileIds = new ArrayList<>();
+    private final List<String> recipients = new ArrayList<>();
+    private final AtomicLong nextShare = new AtomicLong();
+
+    HttpLoadTest(String baseUrl, int fileKb, ExecutorService executor) {
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(executor)
+                .build();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.file = new byte[fileKb * 1024];
+        new Random(1).nextBytes(file);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: HttpLoadTest <base url> <login|upload|download|share|share-batch> [clients] [duration, e.g. 60s] [file KB]");
+            System.exit(2);
+        }
+        String scenario = args[1];
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        Duration duration = args.length > 3 ? Duration.parse("PT" + args[3].toUpperCase()) : Duration.ofSeconds(60);
+        int fileKb = args.length > 4 ? Integer.parseInt(args[4]) : 256;
+
+        // The clients themselves are virtual threads, so 1k+ of them cost next to nothing on this side
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpLoadTest test = new HttpLoadTest(args[0], fileKb, executor);
+            test.setUp(scenario);
+            test.run(scenario, clients, duration, executor);
+        }
+    }
+
+    void setUp(String scenario) throws Exception {
+        send(post("/api/auth/register", json(EMAIL)), false);
+        token = send(post("/api/auth/login", json(EMAIL)), true);
+        if (scenario.equals("download")) {
+            fileId = fileId(send(upload(), true));
+        }
+        if (scenario.startsWith("share")) {
+            for (int i = 0; i < SHARE_RECIPIENTS; i++) {
+                String email = "recipient" + i + "@secure-vault.local";
+                send(post("/api/auth/register", json(email)), false);
+                recipients.add(email);
+            }
+            for (int i = 0; i < SHARE_FILES; i++) {
+                fileIds.add(fileId(send(upload(), true)));
+            }
+        }
+    }
+
+    void run(String scenario, int clients, Duration duration, ExecutorService executor) throws Exception {
+        long end = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            results.add(executor.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < end) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = http.send(request(scenario), HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() / 100 != 2) {
+                            throw new IllegalStateException("HTTP " + response.statusCode());
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        long[] all = new long[0];
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get();
+            int from = all.length;
+            all = Arrays.copyOf(all, from + latencies.length);
+            System.arraycopy(latencies, 0, all, from, latencies.length);
+        }
+        Arrays.sort(all);
+
+        System.out.printf("%s, %d clients, %ds: %d requests (%.1f/s), %d errors%n",
+                scenario, clients, duration.toSeconds(), all.length,
+                all.length / (double) duration.toSeconds(), errors.get());
+        System.out.printf("latency ms: p50 %.1f  p90 %.1f  p99 %.1f  max %.1f%n",
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), percentile(all, 1.0));
+    }
+
+    private HttpRequest request(String scenario) {
+        return switch (scenario) {
+            case "login" -> post("/api/auth/login", json(EMAIL));
+            case "upload" -> upload();
+            case "download" -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/files/download/" + fileId))
+                    .header("Authorization", "Bearer " + token)
+                    .build();
+            case "share" -> {
+                long n = nextShare.getAndIncrement();
+                String file = fileIds.get((int) (n % SHARE_FILES));
+                String email = recipients.get((int) (n / SHARE_FILES % SHARE_RECIPIENTS));
+                yield HttpRequest.newBuilder(URI.create(baseUrl + "/api/files/share?fileId=" + file + "&email=" + email))
+                        .header("Authorization", "Bearer " + token)
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                        .build();
+            }
+            case "share-batch" -> {
+                long n = nextShare.getAndIncrement();
+                int fileBlock = (int) (n % (SHARE_FILES / BATCH)) * BATCH;
+                int recipientBlock = (int) (n / (SHARE_FILES / BATCH) % (SHARE_RECIPIENTS / BATCH)) * BATCH;
+                String body = "{\"fileIds\":[" + String.join(",", fileIds.subList(fileBlock, fileBlock + BATCH))
+                        + "],\"emails\":[\"" + String.join("\",\"", recipients.subList(recipientBlock, recipientBlock + BATCH))
+                        + "\"]}";
+                yield HttpRequest.newBuilder(URI.create(baseUrl + "/api/files/share/batch"))
+                        .header("Authorization", "Bearer " + token)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+            }
+            default -> throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        };
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpRequest upload() {
+        String boundary = "----load-test-boundary";
+        byte[] head = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"load.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/files/upload"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head, file, tail)))
+                .build();
+    }
+
+    // Returns the body; a non-2xx answer is an error when 'required'
+    private String send(HttpRequest request, boolean required) throws Exception {
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (required && response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(request.uri() + " answered " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static String json(String email) {
+        return "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}";
+    }
+
+    // "File uploaded successfully! ID: File encrypted and stored. ID: 42" -> "42"
+    private static String fileId(String uploadAnswer) {
+        return uploadAnswer.substring(uploadAnswer.lastIndexOf(':') + 1).trim();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,66 @@
+package com.sentinel.secure_vault.benchmarks;
+
+import com.sentinel.secure_vault.util.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// JwtUtil on the request path. "Cached" calls repeat one token, as a logged-in client does, and are
+// answered from the verified-token cache; "uncached" calls cycle through more distinct tokens than the
+// cache holds, so (nearly) every call pays for the HMAC signature check.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    // Twice JwtUtil's cache size
+    private static final int DISTINCT_TOKENS = 20_000;
+
+    JwtUtil jwtUtil;
+    String token;
+    String[] tokens;
+    int next;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        token = jwtUtil.generateToken("benchmark@secure-vault.local");
+        tokens = new String[DISTINCT_TOKENS];
+        for (int i = 0; i < DISTINCT_TOKENS; i++) {
+            tokens[i] = jwtUtil.generateToken("user" + i + "@secure-vault.local");
+        }
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("benchmark@secure-vault.local");
+    }
+
+    @Benchmark
+    public String extractUsernameCached() {
+        return jwtUtil.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean validateTokenCached() {
+        return jwtUtil.validateToken(token, "benchmark@secure-vault.local");
+    }
+
+    @Benchmark
+    public String extractUsernameUncached() {
+        next = (next + 1) % DISTINCT_TOKENS;
+        return jwtUtil.extractUsername(tokens[next]);
+    }
+}
@@ -0,0 +1,81 @@
+package com.sentinel.secure_vault.benchmarks;
+
+import com.sentinel.secure_vault.service.CiphertextSource;
+import com.sentinel.secure_vault.service.EncryptionService;
+import com.sentinel.secure_vault.service.SntlHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Encrypt/decrypt throughput of a 50 MB file against the number of crypto threads.
+// threads = 0 is the plain sequential path (no executor). MB/s = 50 / (reported ms / 1000).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelCryptoBenchmark {
+
+    private static final int SIZE = 50 * 1024 * 1024;
+
+    @Param({"0", "1", "2", "4", "8"})
+    int threads;
+
+    ForkJoinPool pool;
+    EncryptionService encryptionService;
+    SecretKey key;
+    String base64Key;
+    byte[] plain;
+    CiphertextSource encrypted;
+
+    @Setup
+    public void setUp() throws Exception {
+        if (threads == 0) {
+            encryptionService = new EncryptionService();
+        } else {
+            pool = new ForkJoinPool(threads);
+            encryptionService = new EncryptionService(pool, DataSize.ofMegabytes(4));
+        }
+        key = encryptionService.generateKey();
+        base64Key = encryptionService.encodeKey(key);
+
+        plain = new byte[SIZE];
+        new Random(1).nextBytes(plain);
+        encrypted = CiphertextSource.of(encryptionService.encrypt(plain, key));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long encrypt() throws Exception {
+        return encryptionService.encrypt(new ByteArrayInputStream(plain), OutputStream.nullOutputStream(), key);
+    }
+
+    @Benchmark
+    public void decrypt() throws Exception {
+        encryptionService.decryptRange(encrypted, base64Key, (int) SntlHeader.VERSION_1, 0, SIZE - 1, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,64 @@
+package com.sentinel.secure_vault.benchmarks;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Arrays;
+
+// Picks app.security.password.bcrypt-strength for the machine it runs on: measures one BCrypt
+// verification (what a login costs) at increasing strengths and recommends the highest one whose
+// median stays within the target. Run it on the deployment hardware, not a developer laptop:
+//   java -cp target/benchmarks.jar com.sentinel.secure_vault.benchmarks.PasswordStrengthCalibration [target ms=250]
+// Note the login pool runs app.security.password-hashing.threads verifications at a time, so at the
+// recommended strength one instance handles about threads * 1000 / target logins per second.
+public class PasswordStrengthCalibration {
+
+    private static final int MIN_STRENGTH = 8;
+    private static final int MAX_STRENGTH = 16;
+    private static final int SAMPLES = 7;
+
+    public static void main(String[] args) {
+        double targetMs = args.length > 0 ? Double.parseDouble(args[0]) : 250;
+        System.out.printf("Target: %.0f ms per verification, %d cores%n%n", targetMs, Runtime.getRuntime().availableProcessors());
+        System.out.println("strength   median ms   min ms");
+
+        int recommended = -1;
+        for (int strength = MIN_STRENGTH; strength <= MAX_STRENGTH; strength++) {
+            double[] times = measure(strength);
+            double median = times[times.length / 2];
+            System.out.printf("%8d   %9.1f   %6.1f%n", strength, median, times[0]);
+
+            if (median <= targetMs) {
+                recommended = strength;
+            } else {
+                break; // Every further step doubles the cost
+            }
+        }
+
+        System.out.println();
+        if (recommended < 0) {
+            System.out.println("Even strength " + MIN_STRENGTH + " is slower than the target on this machine.");
+        } else {
+            System.out.println("Recommended: PASSWORD_BCRYPT_STRENGTH=" + recommended);
+        }
+    }
+
+    // Sorted verification times in ms; the first calls (JIT warm-up) are not counted
+    private static double[] measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        String hash = encoder.encode("calibration-password");
+        for (int i = 0; i < 2; i++) {
+            encoder.matches("calibration-password", hash);
+        }
+
+        double[] times = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            if (!encoder.matches("calibration-password", hash)) {
+                throw new IllegalStateException("BCrypt verification failed");
+            }
+            times[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(times);
+        return times;
+    }
+}
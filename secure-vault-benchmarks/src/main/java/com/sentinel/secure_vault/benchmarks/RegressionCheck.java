@@ -0,0 +1,167 @@
+package com.sentinel.secure_vault.benchmarks;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Runs the JMH benchmarks and compares every score with a stored baseline, so a change can be
+// shown to be faster (or not slower) instead of guessed at.
+//
+//   java -cp target/benchmarks.jar com.sentinel.secure_vault.benchmarks.RegressionCheck --save     (record baseline)
+//   java -cp target/benchmarks.jar com.sentinel.secure_vault.benchmarks.RegressionCheck            (compare, exit 1 on regression)
+//
+// Options: --baseline=FILE (default baselines/baseline.json), --threshold=PERCENT (default 10),
+// --quick (fewer/shorter iterations, for a smoke run), and any number of JMH include regexes
+// (e.g. "JwtBenchmark" or "EncryptionServiceBenchmark.decrypt.*"; default: all benchmarks).
+// A score counts as a regression only if it is worse by more than the threshold AND by more than
+// the two runs' error margins together. Baselines are only comparable on the same machine.
+public class RegressionCheck {
+
+    public static void main(String[] args) throws Exception {
+        boolean save = false;
+        boolean quick = false;
+        File baselineFile = new File("baselines/baseline.json");
+        double threshold = 0.10;
+        List<String> includes = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.equals("--save")) {
+                save = true;
+            } else if (arg.equals("--quick")) {
+                quick = true;
+            } else if (arg.startsWith("--baseline=")) {
+                baselineFile = new File(arg.substring("--baseline=".length()));
+            } else if (arg.startsWith("--threshold=")) {
+                threshold = Double.parseDouble(arg.substring("--threshold=".length())) / 100;
+            } else {
+                includes.add(arg);
+            }
+        }
+
+        Map<String, Score> current = run(includes, quick);
+
+        JsonMapper mapper = JsonMapper.builder().build();
+        if (save) {
+            Map<String, Score> merged = new TreeMap<>();
+            if (baselineFile.exists()) {
+                merged.putAll(read(mapper, baselineFile));
+            }
+            merged.putAll(current);
+            File dir = baselineFile.getAbsoluteFile().getParentFile();
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IllegalStateException("Could not create " + dir);
+            }
+            mapper.writerWithDefaultPrettyPrinter().writeValue(baselineFile, merged);
+            System.out.println("Saved " + current.size() + " scores to " + baselineFile);
+            return;
+        }
+
+        if (!baselineFile.exists()) {
+            System.err.println("No baseline at " + baselineFile + "; record one with --save first.");
+            System.exit(2);
+        }
+        int regressions = compare(read(mapper, baselineFile), current, threshold);
+        if (regressions > 0) {
+            System.out.println(regressions + " regression(s) beyond " + Math.round(threshold * 100) + "%.");
+            System.exit(1);
+        }
+        System.out.println("No regressions beyond " + Math.round(threshold * 100) + "%.");
+    }
+
+    private static Map<String, Score> run(List<String> includes, boolean quick) throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder();
+        if (includes.isEmpty()) {
+            options.include(".*");
+        }
+        for (String include : includes) {
+            options.include(include);
+        }
+        if (quick) {
+            options.warmupIterations(2).warmupTime(TimeValue.seconds(1))
+                    .measurementIterations(3).measurementTime(TimeValue.seconds(1))
+                    .forks(1);
+        }
+
+        Collection<RunResult> results = new Runner(options.build()).run();
+        Map<String, Score> scores = new TreeMap<>();
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            Result primary = result.getPrimaryResult();
+            scores.put(key(params), new Score(params.getMode().shortLabel(),
+                    primary.getScore(), primary.getScoreError(), primary.getScoreUnit()));
+        }
+        return scores;
+    }
+
+    // Prints one line per benchmark; returns how many regressed
+    private static int compare(Map<String, Score> baseline, Map<String, Score> current, double threshold) {
+        int regressions = 0;
+        System.out.println();
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "Baseline", "Now", "Change");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null || !before.unit().equals(now.unit())) {
+                System.out.printf("%-70s %14s %14s %9s%n", entry.getKey(), "-", format(now), "new");
+                continue;
+            }
+
+            // Positive = worse. Throughput is better when higher, all time modes when lower.
+            boolean higherIsBetter = now.mode().equals("thrpt");
+            double change = (now.score() - before.score()) / before.score();
+            double worse = higherIsBetter ? -change : change;
+            boolean beyondNoise = Math.abs(now.score() - before.score()) > safe(now.error()) + safe(before.error());
+
+            String status = "";
+            if (worse > threshold && beyondNoise) {
+                status = "  REGRESSION";
+                regressions++;
+            } else if (-worse > threshold && beyondNoise) {
+                status = "  improved";
+            }
+            System.out.printf("%-70s %14s %14s %+8.1f%%%s%n", entry.getKey(), format(before), format(now), change * 100, status);
+        }
+        return regressions;
+    }
+
+    private static Map<String, Score> read(JsonMapper mapper, File file) {
+        return mapper.readValue(file, new TypeReference<TreeMap<String, Score>>() {
+        });
+    }
+
+    // e.g. "EncryptionServiceBenchmark.decryptRange[size=65536]"
+    private static String key(BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        String name = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+        List<String> values = new ArrayList<>();
+        for (String param : params.getParamsKeys()) {
+            values.add(param + "=" + params.getParam(param));
+        }
+        return values.isEmpty() ? name : name + values;
+    }
+
+    private static String format(Score score) {
+        return String.format("%.3f %s", score.score(), score.unit());
+    }
+
+    // JMH reports NaN as the error when there were too few iterations to compute one
+    private static double safe(double error) {
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    record Score(String mode, double score, double error, String unit) {
+    }
+}
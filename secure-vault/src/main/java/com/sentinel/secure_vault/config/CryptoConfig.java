@@ -0,0 +1,22 @@
+package com.sentinel.secure_vault.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class CryptoConfig {
+
+    // Bounded pool for CPU-bound segment encryption/decryption of large files.
+    // 0 = one thread per available core.
+    // These stay platform threads in virtual-thread mode too: the work is pure CPU, so more threads
+    // than cores would not help. Virtual request threads waiting for their segments unmount meanwhile.
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService cryptoExecutor(@Value("${app.crypto.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads);
+    }
+}
@@ -2,10 +2,14 @@ package com.sentinel.secure_vault.config;
 
 import com.sentinel.secure_vault.service.CustomUserDetailsService;
 import com.sentinel.secure_vault.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,7 +19,9 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
@@ -25,6 +31,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    // auth.jwt.validation{result}: parsing + signature check; auth.principal.lookup: user load (mostly cache hits)
+    private final Timer validTokens;
+    private final Timer invalidTokens;
+    private final Timer principalLookup;
+
+    public JwtAuthenticationFilter(MeterRegistry meterRegistry) {
+        this.validTokens = Timer.builder("auth.jwt.validation").tag("result", "valid")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.invalidTokens = Timer.builder("auth.jwt.validation").tag("result", "invalid")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.principalLookup = Timer.builder("auth.principal.lookup")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -41,36 +64,47 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         // -----------------------------------------------------
 
-        // --- DEBUG LOGS ---
+        // --- DEBUG LOGS (off unless com.sentinel.secure_vault.config is at DEBUG) ---
         String authHeader = request.getHeader("Authorization");
-        System.out.println("🕵️ FILTER: Request to " + requestPath);
+        log.debug(SampledLogFilter.SAMPLED, "Request to {}", requestPath);
         // ------------------
 
         String token = null;
         String username = null;
+        Claims claims = null;
 
-        // 2. Check header and extract Token
+        // 2. Check header, then parse & verify the Token (the only signature check for this request)
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             token = authHeader.substring(7); // Remove "Bearer " prefix
+            long started = System.nanoTime();
             try {
-                username = jwtUtil.extractUsername(token);
+                claims = jwtUtil.parseToken(token);
+                username = claims.getSubject();
+                validTokens.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
             } catch (Exception e) {
+                invalidTokens.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
                 // If token is expired or garbage, just log it and continue.
-                System.out.println("❌ Token extraction failed: " + e.getMessage());
+                log.info(SampledLogFilter.SAMPLED, "Token rejected for {}: {}", requestPath, e.getMessage());
             }
         } else {
-            System.out.println("ℹ️ No Bearer token found (Normal for public pages)");
+            log.debug(SampledLogFilter.SAMPLED, "No Bearer token for {} (normal for public pages)", requestPath);
         }
 
         // 3. If we have a username and they are NOT already logged in
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
             // 4. Load the user details from DB
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            long started = System.nanoTime();
+            UserDetails userDetails;
+            try {
+                userDetails = this.userDetailsService.loadUserByUsername(username);
+            } finally {
+                principalLookup.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
 
-            // 5. Validate the token
+            // 5. Validate the token against the already-parsed claims (no second parse)
             // ✅ FIXED LINE BELOW: using .getUsername()
-            if (jwtUtil.validateToken(token, userDetails.getUsername())) {
+            if (username.equals(userDetails.getUsername()) && !jwtUtil.isExpired(claims)) {
 
                 // 6. Create the Authentication Object
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
@@ -0,0 +1,73 @@
+package com.sentinel.secure_vault.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter.MeterProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Records how many SQL statements each HTTP request issued, as db.queries{method, uri}.
+// A jump in the mean or max for one endpoint is an N+1 (or a lost cache) showing up.
+// Statements are counted through Hibernate's StatementInspector, so every JPA, JPQL and native
+// query is included; plain JdbcTemplate statements (the batch share insert) are not.
+// Runs before Spring Security, so principal loads by the JWT filter count too.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class QueryCountFilter extends OncePerRequestFilter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    // Statements so far on this thread's current request; null outside a request
+    private final ThreadLocal<int[]> count = new ThreadLocal<>();
+
+    private final MeterProvider<DistributionSummary> queries;
+
+    public QueryCountFilter(MeterRegistry meterRegistry) {
+        this.queries = DistributionSummary.builder("db.queries")
+                .description("SQL statements per HTTP request")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(1000.0)
+                .withRegistry(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        int[] statements = new int[1];
+        count.set(statements);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            count.remove();
+            // Same "uri" tag as http.server.requests: the mapped pattern, not the raw path
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            queries.withTags("method", request.getMethod(), "uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                    .record(statements[0]);
+        }
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] statements = count.get();
+        if (statements != null) {
+            statements[0]++;
+        }
+        return sql;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+}
@@ -0,0 +1,53 @@
+package com.sentinel.secure_vault.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caps per-request log events (those logged with the SAMPLED marker) at maxPerSecond per logger,
+// so a burst of bad tokens or failing uploads cannot flood the log. Rare events all get through;
+// in a storm the first ones of every second are kept. Registered in logback-spring.xml.
+public class SampledLogFilter extends TurboFilter {
+
+    public static final Marker SAMPLED = MarkerFactory.getMarker("SAMPLED");
+
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+    private int maxPerSecond = 20;
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // Only actual events count (isXxxEnabled() calls pass no format), and only if the level is on
+        if (marker == null || format == null || !marker.contains(SAMPLED)
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        Window window = windows.computeIfAbsent(logger.getName(), name -> new Window());
+        return window.admit(System.nanoTime() / 1_000_000_000L, maxPerSecond) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    // Events seen in the current second. Racing threads may let a few extra events through
+    // when the second turns over; that is fine for a log limit.
+    private static final class Window {
+
+        private final AtomicLong second = new AtomicLong();
+        private final AtomicLong count = new AtomicLong();
+
+        boolean admit(long now, int max) {
+            long current = second.get();
+            if (now != current && second.compareAndSet(current, now)) {
+                count.set(0);
+            }
+            return count.incrementAndGet() <= max;
+        }
+    }
+}
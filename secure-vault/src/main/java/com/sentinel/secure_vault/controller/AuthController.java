@@ -1,8 +1,12 @@
 package com.sentinel.secure_vault.controller;
 
 import com.sentinel.secure_vault.dto.UserRegistrationDto;
+import com.sentinel.secure_vault.service.TooManyRequestsException;
 import com.sentinel.secure_vault.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,17 +19,26 @@ public class AuthController {
 
     // POST /api/auth/register
     @PostMapping("/register")
-    public String register(@RequestBody UserRegistrationDto request) {
-        // We pass the work to the Service
-        return userService.registerUser(request);
+    public ResponseEntity<String> register(@RequestBody UserRegistrationDto request) {
+        try {
+            // We pass the work to the Service
+            return ResponseEntity.ok(userService.registerUser(request));
+        } catch (TooManyRequestsException e) {
+            return tooManyRequests(e);
+        }
     }
     // ... inside AuthController ...
 
     // POST /api/auth/login
     @PostMapping("/login")
-    public String login(@RequestBody UserRegistrationDto request) {
-        return userService.login(request.getEmail(), request.getPassword());
-
+    // Rate limited per client IP and per account; 429 + Retry-After when over the limit or when
+    // the password hashing queue is full
+    public ResponseEntity<String> login(@RequestBody UserRegistrationDto request, HttpServletRequest httpRequest) {
+        try {
+            return ResponseEntity.ok(userService.login(request.getEmail(), request.getPassword(), httpRequest.getRemoteAddr()));
+        } catch (TooManyRequestsException e) {
+            return tooManyRequests(e);
+        }
     }
     // FORGOT PASSWORD REQUEST
     @PostMapping("/forgot-password")
@@ -44,8 +57,16 @@ public class AuthController {
         try {
             String response = userService.resetPassword(token, newPassword);
             return ResponseEntity.ok(response);
+        } catch (TooManyRequestsException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+
+    private static ResponseEntity<String> tooManyRequests(TooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
 }
\ No newline at end of file
@@ -1,18 +1,38 @@
 package com.sentinel.secure_vault.controller;
 
-import com.sentinel.secure_vault.model.SecureFile;
+import com.sentinel.secure_vault.config.SampledLogFilter;
+import com.sentinel.secure_vault.dto.BatchShareDto;
+import com.sentinel.secure_vault.dto.BulkDeleteDto;
+import com.sentinel.secure_vault.dto.FileMetadataDto;
+import com.sentinel.secure_vault.dto.ShareResultDto;
+import com.sentinel.secure_vault.dto.SharedFileDto;
+import com.sentinel.secure_vault.dto.StorageUsageDto;
+import com.sentinel.secure_vault.dto.UploadSessionDto;
+import com.sentinel.secure_vault.service.ChunkedUploadService;
 import com.sentinel.secure_vault.service.FileService;
+import com.sentinel.secure_vault.service.FileStream;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedModel;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.nio.channels.Channels;
 import java.util.List;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/files")
 public class FileController {
@@ -20,6 +40,9 @@ public class FileController {
     @Autowired
     private FileService fileService;
 
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
     // 1. UPLOAD ENDPOINT
     // 1. UPLOAD ENDPOINT
     @PostMapping("/upload")
@@ -32,19 +55,83 @@ public class FileController {
             // Call service
             String fileId = fileService.storeFile(file, email);
 
-            System.out.println("✅ UPLOAD SUCCESS: " + fileId); // Log success
+            log.debug(SampledLogFilter.SAMPLED, "Upload succeeded: {}", fileId);
             return ResponseEntity.ok("File uploaded successfully! ID: " + fileId);
 
         } catch (Exception e) {
-            // 🛑 Log the specific error if it fails
-            System.out.println("❌ UPLOAD FAILED: " + e.getMessage());
-            e.printStackTrace();
+            // 🛑 Log the specific error if it fails (stack trace at DEBUG)
+            log.warn(SampledLogFilter.SAMPLED, "Upload failed: {}", e.getMessage());
+            log.debug(SampledLogFilter.SAMPLED, "Upload failure", e);
             return ResponseEntity.badRequest().body("Upload failed: " + e.getMessage());
         }
     }
 
 
 
+    // 1b. RESUMABLE (CHUNKED) UPLOAD
+    // POST /uploads -> PUT /uploads/{id}/chunks/{n} (raw bytes, any order) -> POST /uploads/{id}/complete
+    // After a dropped connection, GET /uploads/{id} lists the chunks that already arrived.
+    @PostMapping("/uploads")
+    public ResponseEntity<?> initiateUpload(
+            @RequestParam String fileName,
+            @RequestParam(required = false) String fileType,
+            @RequestParam long size,
+            Authentication authentication
+    ) {
+        try {
+            UploadSessionDto session = chunkedUploadService.initiate(fileName, fileType, size, authentication.getName());
+            return ResponseEntity.ok(session);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Upload failed: " + e.getMessage());
+        }
+    }
+
+    @PutMapping("/uploads/{uploadId}/chunks/{index}")
+    public ResponseEntity<?> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            InputStream body,
+            Authentication authentication
+    ) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.storeChunk(uploadId, index, body, authentication.getName()));
+        } catch (Exception e) {
+            log.warn(SampledLogFilter.SAMPLED, "Chunk {} of {} failed: {}", index, uploadId, e.getMessage());
+            return ResponseEntity.badRequest().body("Chunk failed: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> getUploadStatus(@PathVariable String uploadId, Authentication authentication) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.getStatus(uploadId, authentication.getName()));
+        } catch (Exception e) {
+            return ResponseEntity.status(404).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<String> completeUpload(@PathVariable String uploadId, Authentication authentication) {
+        try {
+            String result = chunkedUploadService.complete(uploadId, authentication.getName());
+            log.debug(SampledLogFilter.SAMPLED, "Upload succeeded: {}", result);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.warn(SampledLogFilter.SAMPLED, "Upload {} failed: {}", uploadId, e.getMessage());
+            return ResponseEntity.badRequest().body("Upload failed: " + e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<String> abortUpload(@PathVariable String uploadId, Authentication authentication) {
+        try {
+            chunkedUploadService.abort(uploadId, authentication.getName());
+            return ResponseEntity.ok("Upload cancelled.");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     // 3. SHARE ENDPOINT
     // Allows the owner to share a file with someone else
     @PostMapping("/share")
@@ -62,71 +149,160 @@ public class FileController {
         }
     }
 
+    // 3b. BATCH SHARE: many files x many recipients in one request and one transaction
+    // Body: {"fileIds": [1, 2], "emails": ["a@x.com", "b@x.com"]} -> one result per (file, email)
+    @PostMapping("/share/batch")
+    public ResponseEntity<?> shareFiles(@RequestBody BatchShareDto request, Authentication authentication) {
+        try {
+            List<ShareResultDto> results = fileService.shareFiles(request.getFileIds(), request.getEmails(), authentication.getName());
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Share failed: " + e.getMessage());
+        }
+    }
+
+    // 4. LIST FILES (metadata only, newest first)
     @GetMapping
-    public ResponseEntity<List<SecureFile>> getMyFiles(Authentication authentication) {
+    public ResponseEntity<List<FileMetadataDto>> getMyFiles(Authentication authentication) {
         String email = authentication.getName();
-        List<SecureFile> files = fileService.getAllFiles(email);
+        List<FileMetadataDto> files = fileService.getAllFiles(email);
         return ResponseEntity.ok(files);
     }
 
+    // 4b. LIST FILES, ONE PAGE AT A TIME
+    // e.g. /api/files/page?page=0&size=50&sort=fileName,asc
+    @GetMapping("/page")
+    public ResponseEntity<PagedModel<FileMetadataDto>> getMyFilesPage(
+            @PageableDefault(size = 50, sort = "uploadTime", direction = Sort.Direction.DESC) Pageable pageable,
+            Authentication authentication
+    ) {
+        Page<FileMetadataDto> files = fileService.getFiles(authentication.getName(), pageable);
+        return ResponseEntity.ok(new PagedModel<>(files));
+    }
+
+    // 4c. SHARED WITH ME, ONE PAGE AT A TIME
+    // e.g. /api/files/shared?page=0&size=50 (newest files first)
+    @GetMapping("/shared")
+    public ResponseEntity<PagedModel<SharedFileDto>> getSharedWithMe(
+            @PageableDefault(size = 50) Pageable pageable,
+            Authentication authentication
+    ) {
+        Page<SharedFileDto> files = fileService.getSharedWithMe(authentication.getName(), pageable);
+        return ResponseEntity.ok(new PagedModel<>(files));
+    }
+
+    // 4d. STORAGE USAGE (used vs quota, in bytes)
+    @GetMapping("/usage")
+    public ResponseEntity<StorageUsageDto> getUsage(Authentication authentication) {
+        return ResponseEntity.ok(fileService.getUsage(authentication.getName()));
+    }
+
     // 2. STREAM/VIEW ENDPOINT
+    // Decrypts straight into the response. Supports a single "Range: bytes=..." request
+    // (206 Partial Content), so media players can seek without decrypting the whole file.
     @GetMapping("/download/{id}")
-    public ResponseEntity<ByteArrayResource> streamFile(
+    public ResponseEntity<StreamingResponseBody> streamFile(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
             Authentication authentication
     ) {
+        FileStream file;
+        long length;
         try {
             String requesterEmail = authentication.getName();
             // Call Service
-            byte[] data = fileService.downloadFile(id, requesterEmail);
+            file = fileService.openFileStream(id, requesterEmail);
+            length = file.getLength();
+        } catch (Exception e) {
+            // 🛑 THIS IS THE FIX: Log the real error (stack trace at DEBUG)
+            log.warn(SampledLogFilter.SAMPLED, "Streaming file {} failed: {}", id, e.getMessage());
+            log.debug(SampledLogFilter.SAMPLED, "Streaming failure", e);
+            return ResponseEntity.status(403).body(null);
+        }
 
-            String contentType = fileService.getContentType(id);
-            ByteArrayResource resource = new ByteArrayResource(data);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        long start = 0;
+        long end = length - 1;
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
-                    .body(resource);
+        List<HttpRange> ranges = parseRanges(rangeHeader);
+        if (ranges.size() == 1 && length > 0) {
+            HttpRange range = ranges.get(0);
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                // Range starts past the end of the file
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+            response = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
 
-        } catch (Exception e) {
-            // 🛑 THIS IS THE FIX: Print the real error to the IntelliJ Console
-            System.out.println("❌ ERROR STREAMING FILE: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.status(403).body(null);
+        long from = start;
+        long to = end;
+        StreamingResponseBody body = out -> {
+            if (to >= from) { // Nothing to decrypt for an empty file
+                file.writeTo(out, from, to);
+            }
+        };
+
+        return response
+                .contentType(MediaType.parseMediaType(file.getContentType()))
+                .contentLength(end - start + 1)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
+                .body(body);
+    }
+
+    // Multiple ranges (multipart/byteranges) are not supported: the full file is sent instead,
+    // which RFC 9110 allows. A malformed header is ignored the same way.
+    private List<HttpRange> parseRanges(String rangeHeader) {
+        if (rangeHeader == null) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return List.of();
         }
     }
 
     // 5. DOWNLOAD ENCRYPTED .SNTL (The Token)
     // This endpoint AUTOMATICALLY stamps the ID into the filename
     @GetMapping("/download-sntl/{id}")
-    public ResponseEntity<ByteArrayResource> downloadEncryptedFile(
+    public ResponseEntity<StreamingResponseBody> downloadEncryptedFile(
             @PathVariable Long id,
             Authentication authentication
     ) {
         try {
             String requesterEmail = authentication.getName();
 
-            // 1. Get the raw encrypted bytes
-            byte[] data = fileService.downloadEncryptedSntl(id, requesterEmail);
+            // 1. Check access and get the file (one lookup, nothing is read yet)
+            FileStream file = fileService.downloadEncryptedSntl(id, requesterEmail);
 
             // 2. Get the original name (e.g., "MiniProject.pdf")
-            String originalName = fileService.getOriginalFileName(id);
+            String originalName = file.getFileName();
 
             // 🛑 CRITICAL FIX: AUTOMATIC STAMPING
             // We force the filename to include "_id_{number}"
             // Result: "MiniProject.pdf_id_15.sntl"
             String sntlName = originalName + "_id_" + id + ".sntl";
 
-            ByteArrayResource resource = new ByteArrayResource(data);
+            // 3. Copy the blob straight from storage into the response channel
+            long size = file.getEncryptedSize();
+            StreamingResponseBody body = out -> file.transferEncryptedTo(Channels.newChannel(out));
 
             return ResponseEntity.ok()
                     // This header tells the browser: "Save the file with THIS specific name"
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + sntlName + "\"")
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(resource);
+                    .contentLength(size)
+                    .body(body);
 
         } catch (Exception e) {
-            System.out.println("❌ ERROR DOWNLOADING SNTL: " + e.getMessage());
+            log.warn(SampledLogFilter.SAMPLED, "Downloading .sntl {} failed: {}", id, e.getMessage());
             return ResponseEntity.status(403).body(null);
         }
     }
@@ -158,6 +334,17 @@ public class FileController {
         }
     }
 
+    // 7b. BATCH REVOKE (same body as batch share)
+    @PostMapping("/revoke/batch")
+    public ResponseEntity<?> revokeFiles(@RequestBody BatchShareDto request, Authentication authentication) {
+        try {
+            List<ShareResultDto> results = fileService.revokeFiles(request.getFileIds(), request.getEmails(), authentication.getName());
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     // 8. DELETE ENDPOINT
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<String> deleteFile(@PathVariable Long id, Authentication authentication) {
@@ -170,6 +357,17 @@ public class FileController {
         }
     }
 
+    // 8b. BULK DELETE: {"fileIds": [1, 2, 3]}
+    // Files vanish immediately; their storage is reclaimed in the background
+    @PostMapping("/delete/batch")
+    public ResponseEntity<?> deleteFiles(@RequestBody BulkDeleteDto request, Authentication authentication) {
+        try {
+            return ResponseEntity.ok(fileService.deleteFiles(request.getFileIds(), authentication.getName()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
 
 
 }
\ No newline at end of file
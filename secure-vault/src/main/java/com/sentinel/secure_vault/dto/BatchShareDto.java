@@ -0,0 +1,12 @@
+package com.sentinel.secure_vault.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Body of the batch share / revoke endpoints: every file x every recipient
+@Data
+public class BatchShareDto {
+    private List<Long> fileIds;
+    private List<String> emails;
+}
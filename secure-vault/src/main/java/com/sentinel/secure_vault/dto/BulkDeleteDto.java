@@ -0,0 +1,11 @@
+package com.sentinel.secure_vault.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Body of the bulk delete endpoint
+@Data
+public class BulkDeleteDto {
+    private List<Long> fileIds;
+}
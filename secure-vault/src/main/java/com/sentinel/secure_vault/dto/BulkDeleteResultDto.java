@@ -0,0 +1,15 @@
+package com.sentinel.secure_vault.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeleteResultDto {
+    private List<Long> deleted;
+    private List<Long> notFound; // Missing, already deleted, or not owned by the caller
+}
@@ -0,0 +1,22 @@
+package com.sentinel.secure_vault.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Everything a download needs (metadata, owner and where the content is), fetched in one query.
+// Internal only: it carries the file key, so it must never be returned to a client.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileAccessDto {
+    private Long id;
+    private String fileName;
+    private String fileType;
+    private String blobRef;
+    private String encryptedKey;
+    // secure_files.cipher_format: picks the decoder (null = legacy AES/ECB, 1 = .sntl)
+    private Integer cipherFormat;
+    private Long ownerId;
+    private String ownerEmail;
+}
@@ -0,0 +1,20 @@
+package com.sentinel.secure_vault.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// What the dashboard needs to list a file. Built directly by the query,
+// so listing files never loads entities, keys or content.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileMetadataDto {
+    private Long id;
+    private String fileName;
+    private String fileType;
+    private Long size; // Plaintext bytes (null for files uploaded before sizes were recorded)
+    private LocalDateTime uploadTime;
+}
@@ -0,0 +1,24 @@
+package com.sentinel.secure_vault.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Outcome for one (file, recipient) pair of a batch share or revoke
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShareResultDto {
+
+    public static final String GRANTED = "GRANTED";
+    public static final String ALREADY_SHARED = "ALREADY_SHARED";
+    public static final String REVOKED = "REVOKED";
+    public static final String NOT_SHARED = "NOT_SHARED";
+    public static final String NOT_REGISTERED = "NOT_REGISTERED";
+    public static final String OWN_FILE = "OWN_FILE";
+    public static final String NOT_OWNER = "NOT_OWNER"; // File missing or owned by someone else
+
+    private Long fileId;
+    private String email;
+    private String status;
+}
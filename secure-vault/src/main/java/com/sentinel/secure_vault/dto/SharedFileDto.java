@@ -0,0 +1,21 @@
+package com.sentinel.secure_vault.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A file someone else shared with the current user. Built directly by the query,
+// like FileMetadataDto, so no FileShare/SecureFile entities are loaded.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SharedFileDto {
+    private Long id;
+    private String fileName;
+    private String fileType;
+    private Long size;
+    private String ownerEmail;
+    private LocalDateTime sharedAt; // null for shares made before the time was recorded
+}
@@ -0,0 +1,13 @@
+package com.sentinel.secure_vault.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageUsageDto {
+    private long usedBytes;
+    private long quotaBytes;
+}
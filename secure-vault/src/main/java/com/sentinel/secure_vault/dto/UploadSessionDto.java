@@ -0,0 +1,21 @@
+package com.sentinel.secure_vault.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// State of a chunked upload. A client resuming after a dropped connection
+// only sends the chunks that are not in receivedChunks.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDto {
+    private String uploadId;
+    private String fileName;
+    private long totalSize;
+    private int chunkSize;
+    private int chunkCount;
+    private List<Integer> receivedChunks;
+}
@@ -0,0 +1,30 @@
+package com.sentinel.secure_vault.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// A blob shared by several of one owner's files (deduplicated uploads).
+// refCount is the number of secure_files rows pointing at blobRef; the blob is only
+// deleted when the last of them goes. Blobs without a row here belong to exactly one file.
+@Entity
+@Table(name = "content_refs",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"owner_id", "content_hash"}))
+@Data
+public class ContentReference {
+
+    @Id
+    @Column(name = "blob_ref", length = 64)
+    private String blobRef;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", nullable = false)
+    private User owner;
+
+    // SHA-256 of the owner id followed by the plaintext, so equal files of
+    // different users never hash alike and nothing can be matched across accounts
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+}
@@ -3,8 +3,16 @@ package com.sentinel.secure_vault.model;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
+// Composite indexes serve both directions: "shared with me" (recipient -> files)
+// and the per-file access check / share list (file -> recipients).
+// The second one is unique, so a file is shared with a user at most once even under concurrent shares.
 @Entity
-@Table(name = "file_shares")
+@Table(name = "file_shares",
+        indexes = @Index(name = "idx_file_shares_recipient_file", columnList = "shared_to_user_id, file_id"),
+        uniqueConstraints = @UniqueConstraint(name = "idx_file_shares_file_recipient",
+                columnNames = {"file_id", "shared_to_user_id"}))
 @Data
 public class FileShare {
 
@@ -13,13 +21,21 @@ public class FileShare {
     private Long id;
 
     // Which file is being shared?
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "file_id", nullable = false)
     private SecureFile file;
 
     // Who is it shared WITH?
     // RENAMED from 'sharedTo' to 'sharedWith' to match Repository & Service
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "shared_to_user_id", nullable = false)
     private User sharedWith;
+
+    @Column(name = "shared_at")
+    private LocalDateTime sharedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        sharedAt = LocalDateTime.now();
+    }
 }
\ No newline at end of file
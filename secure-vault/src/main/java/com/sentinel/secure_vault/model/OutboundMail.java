@@ -0,0 +1,73 @@
+package com.sentinel.secure_vault.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// One e-mail waiting to be sent (or already sent / given up on). Requests only insert rows here;
+// MailWorker delivers them in the background, so a slow SMTP relay never holds up a request thread.
+@Entity
+@Table(name = "outbound_mail", indexes = {
+        @Index(name = "idx_outbound_mail_due", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_outbound_mail_claim", columnList = "claim_token")
+})
+@Data
+public class OutboundMail {
+
+    public enum Status {
+        PENDING, // Waiting for its next attempt
+        SENDING, // Claimed by a worker (until locked_until)
+        SENT,
+        DEAD     // Gave up after the last attempt (dead letter); kept for inspection without its body
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String sender;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    // Null once the mail is SENT or DEAD (bodies can hold password reset links)
+    @Column(columnDefinition = "TEXT")
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Which worker run claimed the row, and until when; a crashed worker's rows become due again after that
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+}
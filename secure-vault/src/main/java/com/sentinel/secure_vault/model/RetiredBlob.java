@@ -0,0 +1,21 @@
+package com.sentinel.secure_vault.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// A blob no row points at any more, e.g. the old copy of a re-encrypted file. Downloads opened
+// before the switch may still be reading it, so FilePurge only deletes it after a grace period.
+@Entity
+@Table(name = "retired_blobs")
+@Data
+public class RetiredBlob {
+
+    @Id
+    @Column(name = "blob_ref", length = 64)
+    private String blobRef;
+
+    @Column(name = "retired_at", nullable = false)
+    private LocalDateTime retiredAt;
+}
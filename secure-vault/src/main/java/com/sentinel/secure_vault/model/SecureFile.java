@@ -1,11 +1,20 @@
 package com.sentinel.secure_vault.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.SQLRestriction;
+
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "secure_files")
+@Table(name = "secure_files", indexes = {
+        @Index(name = "idx_secure_files_blob_ref", columnList = "blob_ref"),
+        @Index(name = "idx_secure_files_deleted_at", columnList = "deleted_at"),
+        // A user's files, newest first (also serves the owner_id foreign key)
+        @Index(name = "idx_secure_files_owner_upload", columnList = "owner_id, upload_time")
+})
+@SQLRestriction("deleted_at IS NULL") // Deleted files are invisible until FilePurge removes them
 @Data
 public class SecureFile {
 
@@ -21,14 +30,28 @@ public class SecureFile {
     @Column(nullable = false)
     private String fileType;
 
-    // ❌ REMOVED: private String storagePath;
-    // (We don't trust the disk anymore)
+    // Reference to the encrypted content in the BlobStore (SHA-256 of the ciphertext).
+    // The bytes themselves no longer live in this row, so loading a SecureFile
+    // never pulls file content out of the database.
+    // (Older rows still have content in the legacy file_data column until LegacyBlobMigration moves it.)
+    // Deduplicated uploads of one owner share a blob; see ContentReference.
+    @JsonIgnore
+    @Column(name = "blob_ref", length = 64)
+    private String blobRef;
+
+    // Sizes recorded at upload time, so usage can be counted without reading any content.
+    // Null for files uploaded before sizes were recorded, until UsageBackfill fills them in.
+    @Column(name = "plain_size")
+    private Long plainSize;
 
-    // ✅ NEW: Store the actual encrypted file bytes inside the database
-    // "LONGBLOB" allows storing large files (up to 4GB in MySQL/TiDB)
-    @Lob
-    @Column(name = "file_data", columnDefinition = "LONGBLOB")
-    private byte[] fileData;
+    @Column(name = "encrypted_size")
+    private Long encryptedSize;
+
+    // Ciphertext format: 1 = .sntl container (AES-256-GCM segments).
+    // Null for bare AES/ECB files written before the container existed, until ReencryptionMigration converts them.
+    @JsonIgnore
+    @Column(name = "cipher_format")
+    private Integer cipherFormat;
 
     // ⚠️ THE KEY: Stored as a Base64 String.
     @Column(nullable = false, length = 512)
@@ -41,6 +64,11 @@ public class SecureFile {
 
     private LocalDateTime uploadTime;
 
+    // Set when the owner deletes the file (tombstone); the row and blob go later, in the background
+    @JsonIgnore
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
     @PrePersist // Automatically sets the time before saving to DB
     protected void onCreate() {
         uploadTime = LocalDateTime.now();
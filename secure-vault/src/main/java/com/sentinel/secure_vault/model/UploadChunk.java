@@ -0,0 +1,47 @@
+package com.sentinel.secure_vault.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// One chunk of an UploadSession. The row is inserted before the chunk is received, so only one
+// request at a time works on a given index; blobRef is set once the chunk is in the BlobStore.
+// The claim is a lease (claimToken + claimedAt): a request that fails gives it up at once, and one
+// that died without doing so is taken over once claimedAt is older than app.upload.claim-timeout.
+@Entity
+@Table(name = "upload_chunks",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"session_id", "chunk_index"}))
+@Data
+public class UploadChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "session_id", nullable = false)
+    private UploadSession session;
+
+    @Column(name = "chunk_index", nullable = false)
+    private int chunkIndex;
+
+    // NULL while the chunk is still being received
+    @Column(name = "blob_ref", length = 64)
+    private String blobRef;
+
+    @Column(name = "encrypted_size", nullable = false)
+    private long encryptedSize;
+
+    // SHA-256 (hex) of the chunk's plaintext, set before its segments are sealed; any later
+    // attempt or resend must match it
+    @Column(name = "plaintext_sha256", length = 64)
+    private String plaintextSha256;
+
+    // The request currently receiving the chunk; NULL once it is stored or the claim was given up
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+}
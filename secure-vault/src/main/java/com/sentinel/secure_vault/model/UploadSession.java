@@ -0,0 +1,62 @@
+package com.sentinel.secure_vault.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// A chunked upload in progress (see ChunkedUploadService).
+// The key and .sntl header are fixed when the upload starts, so every chunk can be encrypted
+// on its own as it arrives; the chunks received so far are the rows in upload_chunks.
+@Entity
+@Table(name = "upload_sessions")
+@Data
+public class UploadSession {
+
+    // Random UUID handed to the client
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", nullable = false)
+    private User owner;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    @Column(nullable = false)
+    private String fileType;
+
+    // Plaintext size announced by the client (reserved against the quota up front)
+    @Column(name = "total_size", nullable = false)
+    private long totalSize;
+
+    // Plaintext bytes per chunk (a multiple of the .sntl segment size); only the last chunk is shorter
+    @Column(name = "chunk_size", nullable = false)
+    private int chunkSize;
+
+    @Column(name = "chunk_count", nullable = false)
+    private int chunkCount;
+
+    @Column(nullable = false, length = 512)
+    private String encryptedKey;
+
+    @Column(name = "sntl_header", nullable = false, length = 20)
+    private byte[] sntlHeader;
+
+    // Set while the chunks are being assembled, so a repeated "complete" cannot create the file twice
+    @Column(nullable = false)
+    private boolean completing;
+
+    private LocalDateTime createdAt;
+
+    // Sessions without activity for app.upload.session-ttl are removed by UploadSessionCleanup
+    private LocalDateTime lastActivity;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        lastActivity = createdAt;
+    }
+}
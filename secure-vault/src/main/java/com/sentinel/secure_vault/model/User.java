@@ -2,10 +2,13 @@ package com.sentinel.secure_vault.model;
 
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.Data; // Lombok automatically writes Getters/Setters for us
 
+import java.time.LocalDateTime;
+
 @Entity // 1. Tells Spring: "This class represents a database table."
-@Table(name = "users") // 2. Tells Spring: "Name the table 'users' in MySQL."
+@Table(name = "users", indexes = @Index(name = "idx_users_reset_token", columnList = "reset_token")) // 2. Tells Spring: "Name the table 'users' in MySQL."
 @Data // 3. Lombok magic: Generates getters, setters, toString, etc. hiddenly.
 public class User {
 
@@ -17,6 +20,10 @@ public class User {
     public String getResetToken() { return resetToken; }
     public void setResetToken(String resetToken) { this.resetToken = resetToken; }
 
+    // 9. A reset token is only accepted until this time (null = not accepted)
+    @Column(name = "reset_token_expires_at")
+    private LocalDateTime resetTokenExpiresAt;
+
     @Column(unique = true, nullable = false) // 6. No duplicates allowed, cannot be empty
     private String email;
 
@@ -24,4 +31,11 @@ public class User {
     private String password;
 
     private String role; // "ADMIN" or "USER"
+
+    // 8. Total plaintext bytes of this user's files, maintained on upload and delete.
+    // Only ever changed with relative UPDATE statements (see UserRepository).
+    // updatable = false: a stale User passed to save() must not overwrite the counter.
+    @Column(name = "used_bytes", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private long usedBytes;
 }
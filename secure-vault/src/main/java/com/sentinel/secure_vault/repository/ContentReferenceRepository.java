@@ -0,0 +1,35 @@
+package com.sentinel.secure_vault.repository;
+
+import com.sentinel.secure_vault.model.ContentReference;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+// Reference counts are only changed with single-row UPDATEs, so concurrent uploads and deletes
+// of the same content serialize on the row lock instead of racing on a read-modify-write.
+public interface ContentReferenceRepository extends JpaRepository<ContentReference, String> {
+
+    Optional<ContentReference> findByOwner_IdAndContentHash(Long ownerId, String contentHash);
+
+    // Takes one more reference. Returns 0 if the last reference was just dropped (the blob is going away).
+    @Transactional
+    @Modifying
+    @Query("UPDATE ContentReference c SET c.refCount = c.refCount + 1 WHERE c.blobRef = :ref AND c.refCount > 0")
+    int acquire(@Param("ref") String blobRef);
+
+    // Drops one reference. Returns 0 if the blob is not shared (no row).
+    @Transactional
+    @Modifying
+    @Query("UPDATE ContentReference c SET c.refCount = c.refCount - 1 WHERE c.blobRef = :ref AND c.refCount > 0")
+    int release(@Param("ref") String blobRef);
+
+    // Removes the row once nothing points at the blob. Returns 1 if the blob can be deleted.
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ContentReference c WHERE c.blobRef = :ref AND c.refCount <= 0")
+    int deleteIfUnreferenced(@Param("ref") String blobRef);
+}
@@ -1,10 +1,57 @@
 package com.sentinel.secure_vault.repository;
 
+import com.sentinel.secure_vault.dto.FileAccessDto;
+import com.sentinel.secure_vault.dto.FileMetadataDto;
 import com.sentinel.secure_vault.model.SecureFile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface FileRepository extends JpaRepository<SecureFile, Long> {
-    // Finds all files where the 'owner' user has this 'email'
-    List<SecureFile> findByOwner_Email(String email);
-}
\ No newline at end of file
+
+    // Dashboard listing: only the columns the UI shows
+    @Query("SELECT new com.sentinel.secure_vault.dto.FileMetadataDto(f.id, f.fileName, f.fileType, f.plainSize, f.uploadTime) " +
+            "FROM SecureFile f WHERE f.owner.email = :email")
+    List<FileMetadataDto> findMetadataByOwnerEmail(@Param("email") String email, Sort sort);
+
+    @Query(value = "SELECT new com.sentinel.secure_vault.dto.FileMetadataDto(f.id, f.fileName, f.fileType, f.plainSize, f.uploadTime) " +
+            "FROM SecureFile f WHERE f.owner.email = :email",
+            countQuery = "SELECT COUNT(f) FROM SecureFile f WHERE f.owner.email = :email")
+    Page<FileMetadataDto> findMetadataByOwnerEmail(@Param("email") String email, Pageable pageable);
+
+    // Download path: metadata, key, blob reference and owner email in a single query
+    @Query("SELECT new com.sentinel.secure_vault.dto.FileAccessDto(f.id, f.fileName, f.fileType, f.blobRef, f.encryptedKey, f.cipherFormat, o.id, o.email) " +
+            "FROM SecureFile f JOIN f.owner o WHERE f.id = :id")
+    Optional<FileAccessDto> findAccessById(@Param("id") Long id);
+
+    // Any file sharing this blob (deduplicated uploads reuse its key)
+    Optional<SecureFile> findFirstByBlobRef(String blobRef);
+
+    // Batch share/revoke: which of these files the user owns
+    @Query("SELECT f.id FROM SecureFile f WHERE f.id IN :ids AND f.owner.email = :email")
+    List<Long> findIdsOwnedBy(@Param("ids") Collection<Long> ids, @Param("email") String email);
+
+    // Bulk delete: the caller's own files among these ids
+    List<SecureFile> findByIdInAndOwner_Email(Collection<Long> ids, String email);
+
+    // Delete: locks the rows among 'ids' that are not deleted yet until the transaction ends, and returns their ids.
+    // Of two concurrent deletes of a file only the first gets it back; the second waits, then finds it gone.
+    // Native: Hibernate's MySQL dialect writes FOR UPDATE OF, which MariaDB and older MySQL reject.
+    @Query(value = "SELECT id FROM secure_files WHERE id IN (:ids) AND deleted_at IS NULL FOR UPDATE", nativeQuery = true)
+    List<Long> lockLive(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE SecureFile f SET f.deletedAt = :now WHERE f.id IN :ids AND f.deletedAt IS NULL")
+    int markDeleted(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+}
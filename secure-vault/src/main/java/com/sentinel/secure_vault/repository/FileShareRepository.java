@@ -1,18 +1,59 @@
 package com.sentinel.secure_vault.repository;
 
+import com.sentinel.secure_vault.dto.SharedFileDto;
 import com.sentinel.secure_vault.model.FileShare;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 
 public interface FileShareRepository extends JpaRepository<FileShare, Long> {
 
-    // 1. Used for Dashboard: Find all files shared with this email
-    List<FileShare> findBySharedWith_Email(String email);
+    // 1. Used for Dashboard: files shared with this email, with owner and share time, in one query.
+    // Ordered by file id so the (shared_to_user_id, file_id) index gives the order without a sort.
+    @Query(value = "SELECT new com.sentinel.secure_vault.dto.SharedFileDto(f.id, f.fileName, f.fileType, f.plainSize, o.email, s.sharedAt) " +
+            "FROM FileShare s JOIN s.file f JOIN f.owner o " +
+            "WHERE s.sharedWith.id = :userId ORDER BY s.file.id DESC",
+            countQuery = "SELECT COUNT(s) FROM FileShare s WHERE s.sharedWith.id = :userId")
+    Page<SharedFileDto> findSharedWithUser(@Param("userId") Long userId, Pageable pageable);
+
+    // Recipients of one file (ids only, for FileAccessCache)
+    @Query("SELECT s.sharedWith.id FROM FileShare s WHERE s.file.id = :fileId")
+    List<Long> findRecipientIds(@Param("fileId") Long fileId, Pageable pageable);
+
+    // Recipients of one file (emails only)
+    @Query("SELECT u.email FROM FileShare s JOIN s.sharedWith u WHERE s.file.id = :fileId")
+    List<String> findRecipientEmails(@Param("fileId") Long fileId);
 
     // 2. Used for Download Security: Check if a specific share exists
     // "Does a record exist for this File ID and this Recipient Email?"
     boolean existsByFile_IdAndSharedWith_Email(Long fileId, String email);
+    boolean existsByFile_IdAndSharedWith_Id(Long fileId, Long userId);
     List<FileShare> findByFile_Id(Long fileId);
     // NEW: Find a specific share record to delete it
     void deleteByFile_IdAndSharedWith_Email(Long fileId, String email);
-}
\ No newline at end of file
+
+    // Shares a file unless it already is (unique file_id, shared_to_user_id). Returns 0 if it was.
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO file_shares (file_id, shared_to_user_id, shared_at) " +
+            "VALUES (:fileId, :userId, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int insertIfAbsent(@Param("fileId") Long fileId, @Param("userId") Long userId);
+
+    // Batch share/revoke: existing (fileId, userId) pairs among the given files and users, in one query
+    @Query("SELECT s.file.id, s.sharedWith.id FROM FileShare s " +
+            "WHERE s.file.id IN :fileIds AND s.sharedWith.id IN :userIds")
+    List<Object[]> findSharePairs(@Param("fileIds") Collection<Long> fileIds, @Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("DELETE FROM FileShare s WHERE s.file.id IN :fileIds")
+    int deleteByFileIds(@Param("fileIds") Collection<Long> fileIds);
+
+    @Modifying
+    @Query("DELETE FROM FileShare s WHERE s.file.id IN :fileIds AND s.sharedWith.id IN :userIds")
+    int deleteSharePairs(@Param("fileIds") Collection<Long> fileIds, @Param("userIds") Collection<Long> userIds);
+}
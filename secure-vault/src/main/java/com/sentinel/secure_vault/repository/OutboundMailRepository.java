@@ -0,0 +1,46 @@
+package com.sentinel.secure_vault.repository;
+
+import com.sentinel.secure_vault.model.OutboundMail;
+import com.sentinel.secure_vault.model.OutboundMail.Status;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboundMailRepository extends JpaRepository<OutboundMail, Long> {
+
+    // Oldest due mails first
+    @Query("SELECT m.id FROM OutboundMail m WHERE m.status = :status AND m.nextAttemptAt <= :now ORDER BY m.nextAttemptAt")
+    List<Long> findDueIds(@Param("status") Status status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    // Claims whichever of these rows are still in status 'from'. Two workers (or instances) racing
+    // for the same rows each get a disjoint set, which they read back by their token.
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboundMail m SET m.status = :to, m.claimToken = :token, m.lockedUntil = :lockedUntil " +
+            "WHERE m.id IN :ids AND m.status = :from")
+    int claim(@Param("ids") Collection<Long> ids, @Param("from") Status from, @Param("to") Status to,
+              @Param("token") String token, @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    List<OutboundMail> findByClaimToken(String claimToken);
+
+    // Hands back rows claimed by a worker that died before finishing
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboundMail m SET m.status = :to, m.claimToken = null " +
+            "WHERE m.status = :from AND m.lockedUntil < :now")
+    int releaseExpiredClaims(@Param("from") Status from, @Param("to") Status to, @Param("now") LocalDateTime now);
+
+    long countByStatus(Status status);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OutboundMail m WHERE m.status = :status AND m.sentAt < :before")
+    int deleteSentBefore(@Param("status") Status status, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,60 @@
+package com.sentinel.secure_vault.repository;
+
+import com.sentinel.secure_vault.model.UploadChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface UploadChunkRepository extends JpaRepository<UploadChunk, Long> {
+
+    List<UploadChunk> findBySession_IdOrderByChunkIndex(String sessionId);
+
+    Optional<UploadChunk> findBySession_IdAndChunkIndex(String sessionId, int chunkIndex);
+
+    // Just the indexes of the chunks that are stored, for resume status
+    @Query("SELECT c.chunkIndex FROM UploadChunk c WHERE c.session.id = :sessionId AND c.blobRef IS NOT NULL " +
+            "ORDER BY c.chunkIndex")
+    List<Integer> findChunkIndexes(@Param("sessionId") String sessionId);
+
+    // Takes over a chunk's claim if it was given up or its lease ran out. Returns 1 if it is now ours.
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadChunk c SET c.claimToken = :token, c.claimedAt = :now WHERE c.id = :id " +
+            "AND c.blobRef IS NULL AND (c.claimToken IS NULL OR c.claimedAt < :staleBefore)")
+    int takeOverClaim(@Param("id") Long id, @Param("token") String token, @Param("now") LocalDateTime now,
+                      @Param("staleBefore") LocalDateTime staleBefore);
+
+    // Fixes the chunk's content before its segments are sealed: succeeds if we still hold the claim
+    // and no other content was fixed before. Returns 0 otherwise.
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadChunk c SET c.plaintextSha256 = :sha256, c.claimedAt = :now WHERE c.id = :id " +
+            "AND c.claimToken = :token AND c.blobRef IS NULL " +
+            "AND (c.plaintextSha256 IS NULL OR c.plaintextSha256 = :sha256)")
+    int fixContent(@Param("id") Long id, @Param("token") String token, @Param("sha256") String sha256,
+                   @Param("now") LocalDateTime now);
+
+    // Records the stored chunk on its claimed row. Returns 0 if the claim was lost or the upload aborted.
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadChunk c SET c.blobRef = :blobRef, c.encryptedSize = :encryptedSize, c.claimToken = null " +
+            "WHERE c.id = :id AND c.claimToken = :token AND c.blobRef IS NULL")
+    int markStored(@Param("id") Long id, @Param("token") String token, @Param("blobRef") String blobRef,
+                   @Param("encryptedSize") long encryptedSize);
+
+    // Gives up a claim after a failed attempt, so the chunk can be sent again at once
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadChunk c SET c.claimToken = null, c.claimedAt = null WHERE c.id = :id AND c.claimToken = :token")
+    int releaseClaim(@Param("id") Long id, @Param("token") String token);
+
+    @Modifying
+    @Query("DELETE FROM UploadChunk c WHERE c.session.id = :sessionId")
+    int deleteBySessionId(@Param("sessionId") String sessionId);
+}
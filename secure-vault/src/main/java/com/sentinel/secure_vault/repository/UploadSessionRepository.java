@@ -0,0 +1,42 @@
+package com.sentinel.secure_vault.repository;
+
+import com.sentinel.secure_vault.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    // A session is only visible to the user who started it
+    Optional<UploadSession> findByIdAndOwner_Email(String id, String email);
+
+    List<UploadSession> findTop50ByLastActivityBefore(LocalDateTime cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.lastActivity = :now WHERE s.id = :id")
+    int touch(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    // Returns 1 for the one caller allowed to assemble the file, 0 if it is already being assembled
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.completing = true, s.lastActivity = :now " +
+            "WHERE s.id = :id AND s.completing = false")
+    int claimForCompletion(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.completing = false WHERE s.id = :id")
+    int releaseClaim(@Param("id") String id);
+
+    // Returns 0 if another request already removed the session
+    @Modifying
+    @Query("DELETE FROM UploadSession s WHERE s.id = :id")
+    int deleteSession(@Param("id") String id);
+}
@@ -2,6 +2,13 @@ package com.sentinel.secure_vault.repository;
 
 import com.sentinel.secure_vault.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 // We extend JpaRepository<Type, ID_Type>
@@ -16,5 +23,34 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Optional<?> means: "It might return a User, or it might be empty (null safe)"
     Optional<User> findByEmail(String email);
     Optional<User> findByResetToken(String resetToken);
+    List<User> findByEmailIn(Collection<String> emails);
     // Spring sees "findByEmail" -> translates to "SELECT * FROM users WHERE email = ?"
+
+    // 3. Storage usage counter. Single-row UPDATEs keep it correct under concurrent uploads
+    // without locking the user row for the duration of an upload.
+    // Pending changes are flushed first: the clear afterwards would otherwise drop them
+    // (e.g. a file delete queued just before releaseBytes).
+
+    // Reserves space only if it still fits in the quota. Returns 1 on success, 0 if over quota.
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.usedBytes = u.usedBytes + :bytes " +
+            "WHERE u.id = :userId AND u.usedBytes + :bytes <= :quota")
+    int reserveBytes(@Param("userId") Long userId, @Param("bytes") long bytes, @Param("quota") long quota);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.usedBytes = CASE WHEN u.usedBytes > :bytes THEN u.usedBytes - :bytes ELSE 0 END " +
+            "WHERE u.id = :userId")
+    int releaseBytes(@Param("userId") Long userId, @Param("bytes") long bytes);
+
+    @Query("SELECT u.usedBytes FROM User u WHERE u.email = :email")
+    Optional<Long> findUsedBytesByEmail(@Param("email") String email);
+
+    // 4. Password hash upgrade at login. Only replaces the exact hash that was just verified,
+    // so a password reset that happened in between is never overwritten.
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :userId AND u.password = :oldHash")
+    int replacePasswordHash(@Param("userId") Long userId, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.sentinel.secure_vault.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+// Load-through for caches whose loader queries the database.
+// Caffeine's Cache.get(key, loader) runs the loader inside ConcurrentHashMap.compute, i.e. while holding
+// a monitor; on Java 21 that pins a virtual thread to its carrier for the whole query. Here only an
+// empty future goes into the map: the caller that put it loads the value outside any lock, and
+// concurrent callers for the same key park on the future until it is done.
+final class CacheLoads {
+
+    private CacheLoads() {
+    }
+
+    static <K, V> V getOrLoad(AsyncCache<K, V> cache, K key, Function<K, V> loader) {
+        while (true) {
+            CompletableFuture<V> created = new CompletableFuture<>();
+            CompletableFuture<V> future = cache.get(key, (k, executor) -> created);
+            if (future != created) {
+                try {
+                    return future.join();
+                } catch (CancellationException e) {
+                    continue; // The caller that was loading it failed; load it ourselves
+                }
+            }
+
+            try {
+                V value = loader.apply(key);
+                created.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                // Cancelled rather than failed: Caffeine drops the entry without logging it as a load error
+                created.cancel(false);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.dto.UploadSessionDto;
+import com.sentinel.secure_vault.model.SecureFile;
+import com.sentinel.secure_vault.model.UploadChunk;
+import com.sentinel.secure_vault.model.UploadSession;
+import com.sentinel.secure_vault.model.User;
+import com.sentinel.secure_vault.repository.FileRepository;
+import com.sentinel.secure_vault.repository.UploadChunkRepository;
+import com.sentinel.secure_vault.repository.UploadSessionRepository;
+import com.sentinel.secure_vault.repository.UserRepository;
+import com.sentinel.secure_vault.storage.BlobStore;
+import com.sentinel.secure_vault.storage.PendingBlob;
+import com.sentinel.secure_vault.storage.StoredBlob;
+import com.sentinel.secure_vault.util.AESUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+// Resumable uploads: initiate -> PUT numbered chunks (any order, retries allowed) -> complete.
+// Each chunk is encrypted into the BlobStore as it arrives, as one part of the final .sntl container
+// (chunks are whole segments, so part i starts at a known segment index). Completing only
+// concatenates the encrypted parts; nothing is decrypted or encrypted again.
+@Slf4j
+@Service
+public class ChunkedUploadService {
+
+    @Autowired
+    private UploadSessionRepository sessionRepository;
+
+    @Autowired
+    private UploadChunkRepository chunkRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FileMetrics fileMetrics;
+
+    // Plaintext bytes per chunk; rounded up to whole .sntl segments
+    @Value("${app.upload.chunk-size:8MB}")
+    private DataSize chunkSize;
+
+    // A chunk claimed longer ago than this by a request that never finished can be claimed again
+    @Value("${app.upload.claim-timeout:10m}")
+    private Duration claimTimeout;
+
+    // 1. START AN UPLOAD
+    // The whole size is reserved against the quota now, so a full disk is reported before any data is sent
+    public UploadSessionDto initiate(String fileName, String fileType, long totalSize, String ownerEmail) throws Exception {
+        if (fileName == null || fileName.isBlank()) {
+            throw new RuntimeException("File name is required.");
+        }
+        if (totalSize < 0) {
+            throw new RuntimeException("File size must not be negative.");
+        }
+
+        User owner = userRepository.findByEmail(ownerEmail)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        fileService.reserveQuota(owner, totalSize);
+
+        try {
+            int chunkBytes = chunkBytes();
+            // An empty file is still one (empty) chunk, so it gets a last segment
+            long chunkCount = Math.max(1, (totalSize + chunkBytes - 1) / chunkBytes);
+
+            UploadSession session = new UploadSession();
+            session.setId(UUID.randomUUID().toString());
+            session.setOwner(owner);
+            session.setFileName(fileName);
+            session.setFileType(fileType == null || fileType.isBlank() ? "application/octet-stream" : fileType);
+            session.setTotalSize(totalSize);
+            session.setChunkSize(chunkBytes);
+            session.setChunkCount(Math.toIntExact(chunkCount));
+            session.setEncryptedKey(encryptionService.encodeKey(encryptionService.generateKey()));
+            session.setSntlHeader(encryptionService.newHeader().bytes());
+            sessionRepository.save(session);
+
+            return toDto(session, List.of());
+        } catch (Exception e) {
+            userRepository.releaseBytes(owner.getId(), totalSize);
+            throw e;
+        }
+    }
+
+    // 2. RECEIVE ONE CHUNK
+    // A segment's GCM nonce is fixed by the session's header and the segment index, so an index must
+    // never be sealed with different bytes. A chunk is therefore first received in full into a spool
+    // blob (a throwaway container under a one-off key, so plaintext never touches disk). Its SHA-256
+    // is recorded on the chunk's row, and only then are its segments sealed with the session's key.
+    // An attempt that fails while receiving leaves nothing behind, and the chunk can be sent again
+    // (with any content). Once the content is recorded, later attempts and resends must carry the same
+    // bytes, which seal to the same ciphertext. The row is claimed (unique on session + index) first,
+    // so only one request at a time works on a chunk.
+    // Timed as "upload-chunk", split into db and crypto like FileService.storeFile
+    public UploadSessionDto storeChunk(String uploadId, int index, InputStream in, String ownerEmail) throws Exception {
+        FileMetrics.PhaseTimer timer = fileMetrics.start("upload-chunk", FileMetrics.Phase.DB);
+        try (FileMetrics.Transfer transfer = fileMetrics.upload()) {
+            return storeChunk(uploadId, index, in, ownerEmail, timer);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private UploadSessionDto storeChunk(String uploadId, int index, InputStream in, String ownerEmail,
+                                        FileMetrics.PhaseTimer timer) throws Exception {
+        UploadSession session = findSession(uploadId, ownerEmail);
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new RuntimeException("Chunk index must be between 0 and " + (session.getChunkCount() - 1) + ".");
+        }
+
+        String token = UUID.randomUUID().toString();
+        UploadChunk chunk = claimChunk(session, index, token);
+        if (chunk.getBlobRef() != null) {
+            checkResend(chunk, in, expectedLength(session, index), timer);
+        } else {
+            try {
+                storeClaimedChunk(session, chunk, token, in, timer);
+            } catch (Exception e) {
+                // Let the client send the chunk again at once (a no-op if the claim was lost meanwhile)
+                chunkRepository.releaseClaim(chunk.getId(), token);
+                throw e;
+            }
+        }
+
+        sessionRepository.touch(uploadId, LocalDateTime.now());
+        return toDto(session, chunkRepository.findChunkIndexes(uploadId));
+    }
+
+    // Inserts the chunk's row under our claim, or returns the existing row if the chunk is already
+    // stored or its claim can be taken over (given up, or older than claim-timeout)
+    private UploadChunk claimChunk(UploadSession session, int index, String token) {
+        LocalDateTime now = LocalDateTime.now();
+        UploadChunk chunk = new UploadChunk();
+        chunk.setSession(session);
+        chunk.setChunkIndex(index);
+        chunk.setClaimToken(token);
+        chunk.setClaimedAt(now);
+        try {
+            return chunkRepository.save(chunk);
+        } catch (DataIntegrityViolationException e) {
+            // Either the chunk is there already, or the session was removed meanwhile (foreign key)
+            UploadChunk existing = chunkRepository.findBySession_IdAndChunkIndex(session.getId(), index)
+                    .orElseThrow(() -> new RuntimeException("Upload not found"));
+            if (existing.getBlobRef() == null
+                    && chunkRepository.takeOverClaim(existing.getId(), token, now, now.minus(claimTimeout)) == 0) {
+                throw new RuntimeException("Chunk " + index + " is already being received.");
+            }
+            return existing;
+        }
+    }
+
+    // A resend of a stored chunk: nothing is encrypted, the content only has to be the same
+    private void checkResend(UploadChunk chunk, InputStream in, long expected, FileMetrics.PhaseTimer timer) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        timer.phase(FileMetrics.Phase.CRYPTO);
+        try {
+            checkLength(chunk.getChunkIndex(), copy(in, new DigestOutputStream(OutputStream.nullOutputStream(), digest), expected), expected);
+        } finally {
+            timer.phase(FileMetrics.Phase.DB);
+        }
+        // Chunks stored before hashes were kept have none; they are accepted as before
+        if (chunk.getPlaintextSha256() != null
+                && !chunk.getPlaintextSha256().equals(HexFormat.of().formatHex(digest.digest()))) {
+            throw new RuntimeException("Chunk " + chunk.getChunkIndex() + " was already received with different content.");
+        }
+    }
+
+    // Spools the chunk, records its hash, seals it as its part of the container and stores the part
+    private void storeClaimedChunk(UploadSession session, UploadChunk chunk, String token, InputStream in,
+                                   FileMetrics.PhaseTimer timer) throws Exception {
+        int index = chunk.getChunkIndex();
+        long expected = expectedLength(session, index);
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        String spoolKey = encryptionService.encodeKey(encryptionService.generateKey());
+
+        String spoolRef;
+        timer.phase(FileMetrics.Phase.CRYPTO);
+        try (PendingBlob spool = blobStore.create();
+             SntlEncryptingOutputStream out = encryptionService.newEncryptingStream(spool.outputStream(),
+                     AESUtil.toKey(spoolKey))) {
+            try {
+                checkLength(index, copy(in, new DigestOutputStream(out, digest), expected), expected);
+                out.finish();
+            } catch (Exception e) {
+                out.abandon();
+                throw e;
+            }
+            spoolRef = spool.commit();
+        } finally {
+            timer.phase(FileMetrics.Phase.DB);
+        }
+
+        try {
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            if (chunkRepository.fixContent(chunk.getId(), token, sha256, LocalDateTime.now()) == 0) {
+                UploadChunk current = chunkRepository.findById(chunk.getId())
+                        .orElseThrow(() -> new RuntimeException("Upload not found"));
+                if (token.equals(current.getClaimToken())) {
+                    throw new RuntimeException("Chunk " + index + " was already received with different content.");
+                }
+                throw new RuntimeException("Chunk " + index + " is already being received.");
+            }
+
+            timer.phase(FileMetrics.Phase.CRYPTO);
+            String blobRef;
+            long encryptedSize;
+            try {
+                long firstSegment = (long) index * session.getChunkSize() / EncryptionService.SEGMENT_SIZE;
+                boolean finalPart = index == session.getChunkCount() - 1;
+                try (PendingBlob pending = blobStore.create();
+                     SntlEncryptingOutputStream part = encryptionService.newPartStream(pending.outputStream(),
+                             AESUtil.toKey(session.getEncryptedKey()), SntlHeader.parse(session.getSntlHeader()),
+                             firstSegment, finalPart)) {
+                    try {
+                        if (expected > 0) {
+                            encryptionService.decryptRange(blobStore.open(spoolRef), spoolKey, (int) SntlHeader.VERSION_1,
+                                    0, expected - 1, part);
+                        }
+                        encryptedSize = part.finish();
+                    } catch (Exception e) {
+                        // close() must not seal the partial segment: its nonce is kept for the full one
+                        part.abandon();
+                        throw e;
+                    }
+                    blobRef = pending.commit();
+                }
+                fileMetrics.encrypted(expected);
+            } finally {
+                timer.phase(FileMetrics.Phase.DB);
+            }
+
+            if (chunkRepository.markStored(chunk.getId(), token, blobRef, encryptedSize) == 0) {
+                UploadChunk current = chunkRepository.findById(chunk.getId()).orElse(null);
+                if (current == null) {
+                    // Aborted meanwhile (by the client or UploadSessionCleanup)
+                    blobStore.delete(blobRef);
+                    throw new RuntimeException("Upload not found");
+                }
+                // The claim was taken over. The new holder seals the same bytes into this same blob,
+                // so the blob is left to it.
+                if (current.getBlobRef() == null) {
+                    throw new RuntimeException("Chunk " + index + " is already being received.");
+                }
+            }
+        } finally {
+            deleteQuietly(spoolRef);
+        }
+    }
+
+    // 3. STATUS (which chunks still have to be sent)
+    public UploadSessionDto getStatus(String uploadId, String ownerEmail) {
+        UploadSession session = findSession(uploadId, ownerEmail);
+        return toDto(session, chunkRepository.findChunkIndexes(uploadId));
+    }
+
+    // 4. COMPLETE: concatenate the encrypted parts into the final blob and create the file
+    public String complete(String uploadId, String ownerEmail) throws Exception {
+        UploadSession session = findSession(uploadId, ownerEmail);
+
+        List<UploadChunk> chunks = chunkRepository.findBySession_IdOrderByChunkIndex(uploadId);
+        long stored = chunks.stream().filter(chunk -> chunk.getBlobRef() != null).count();
+        if (stored != session.getChunkCount()) {
+            throw new RuntimeException("Upload is missing " + (session.getChunkCount() - stored) + " chunk(s).");
+        }
+        if (sessionRepository.claimForCompletion(uploadId, LocalDateTime.now()) == 0) {
+            throw new RuntimeException("Upload is already being completed.");
+        }
+
+        String blobRef = null;
+        try {
+            long encryptedSize = 0;
+            try (PendingBlob pending = blobStore.create()) {
+                WritableByteChannel target = Channels.newChannel(pending.outputStream());
+                for (UploadChunk chunk : chunks) {
+                    StoredBlob part = blobStore.open(chunk.getBlobRef());
+                    encryptedSize += part.transferTo(0, part.size(), target);
+                }
+                blobRef = pending.commit();
+            }
+
+            // The quota reservation made at initiate now belongs to the file
+            SecureFile secureFile = fileService.newSecureFile(session.getOwner(), session.getFileName(),
+                    session.getFileType(), session.getEncryptedKey(), blobRef, session.getTotalSize(), encryptedSize);
+            transactionTemplate.executeWithoutResult(status -> {
+                fileRepository.save(secureFile);
+                chunkRepository.deleteBySessionId(uploadId);
+                sessionRepository.deleteSession(uploadId);
+            });
+
+            deleteParts(chunks);
+            return "File encrypted and stored. ID: " + secureFile.getId();
+
+        } catch (Exception e) {
+            if (blobRef != null) {
+                blobStore.delete(blobRef);
+            }
+            // Let the client retry "complete"
+            sessionRepository.releaseClaim(uploadId);
+            throw e;
+        }
+    }
+
+    // 5. ABORT (by the client, or by UploadSessionCleanup once a session is abandoned)
+    public void abort(String uploadId, String ownerEmail) {
+        abort(findSession(uploadId, ownerEmail));
+    }
+
+    void abort(UploadSession session) {
+        String uploadId = session.getId();
+        List<UploadChunk> chunks = chunkRepository.findBySession_IdOrderByChunkIndex(uploadId);
+
+        Boolean removed = transactionTemplate.execute(status -> {
+            chunkRepository.deleteBySessionId(uploadId);
+            if (sessionRepository.deleteSession(uploadId) == 0) {
+                return false; // Someone else removed it first and already released the space
+            }
+            userRepository.releaseBytes(session.getOwner().getId(), session.getTotalSize());
+            return true;
+        });
+
+        if (Boolean.TRUE.equals(removed)) {
+            deleteParts(chunks);
+        }
+    }
+
+    private UploadSession findSession(String uploadId, String ownerEmail) {
+        return sessionRepository.findByIdAndOwner_Email(uploadId, ownerEmail)
+                .orElseThrow(() -> new RuntimeException("Upload not found"));
+    }
+
+    private void deleteParts(List<UploadChunk> chunks) {
+        for (UploadChunk chunk : chunks) {
+            // Rows without a blob were claimed but never stored
+            if (chunk.getBlobRef() != null) {
+                deleteQuietly(chunk.getBlobRef());
+            }
+        }
+    }
+
+    private void deleteQuietly(String ref) {
+        try {
+            blobStore.delete(ref);
+        } catch (IOException e) {
+            log.warn("Could not delete upload part {}: {}", ref, e.getMessage());
+        }
+    }
+
+    private int chunkBytes() {
+        long segments = Math.max(1, (chunkSize.toBytes() + EncryptionService.SEGMENT_SIZE - 1) / EncryptionService.SEGMENT_SIZE);
+        return Math.toIntExact(segments * EncryptionService.SEGMENT_SIZE);
+    }
+
+    private static long expectedLength(UploadSession session, int index) {
+        long start = (long) index * session.getChunkSize();
+        return Math.min(session.getChunkSize(), session.getTotalSize() - start);
+    }
+
+    private static void checkLength(int index, long received, long expected) {
+        if (received != expected) {
+            throw new RuntimeException("Chunk " + index + " must be " + expected + " bytes, got "
+                    + (received > expected ? "more" : String.valueOf(received)) + ".");
+        }
+    }
+
+    // Copies at most 'limit' bytes. Returns limit + 1 if the input is longer than that.
+    private static long copy(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] buffer = new byte[EncryptionService.SEGMENT_SIZE];
+        long total = 0;
+        while (total < limit) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, limit - total));
+            if (read == -1) {
+                return total;
+            }
+            out.write(buffer, 0, read);
+            total += read;
+        }
+        return in.read() == -1 ? total : total + 1;
+    }
+
+    private static UploadSessionDto toDto(UploadSession session, List<Integer> receivedChunks) {
+        return new UploadSessionDto(session.getId(), session.getFileName(), session.getTotalSize(),
+                session.getChunkSize(), session.getChunkCount(), receivedChunks);
+    }
+}
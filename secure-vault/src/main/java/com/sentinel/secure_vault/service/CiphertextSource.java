@@ -0,0 +1,31 @@
+package com.sentinel.secure_vault.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Random access to a stored ciphertext, so a download can read only the
+// encrypted segments that cover the requested byte range.
+public interface CiphertextSource {
+
+    // Total ciphertext length in bytes
+    long size() throws IOException;
+
+    // Opens a stream over 'length' bytes starting at the 0-based 'offset'
+    InputStream open(long offset, long length) throws IOException;
+
+    // Ciphertext that is already in memory
+    static CiphertextSource of(byte[] ciphertext) {
+        return new CiphertextSource() {
+            @Override
+            public long size() {
+                return ciphertext.length;
+            }
+
+            @Override
+            public InputStream open(long offset, long length) {
+                return new ByteArrayInputStream(ciphertext, (int) offset, (int) length);
+            }
+        };
+    }
+}
@@ -1,12 +1,18 @@
 package com.sentinel.secure_vault.service;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.sentinel.secure_vault.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService; // 👈 CRITICAL IMPORT
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
 
 @Service
@@ -15,17 +21,54 @@ public class CustomUserDetailsService implements UserDetailsService { // 👈 TH
     @Autowired
     private UserRepository userRepository;
 
+    // Every authenticated request loads its principal, so recently seen users are kept in memory.
+    // Entries expire after a short TTL and are evicted on password reset (see evict()).
+    // Only the data is cached: a fresh UserDetails is built per call, because Spring Security
+    // may erase the credentials of the object it is handed.
+    private final AsyncCache<String, CachedPrincipal> principals;
+
+    public CustomUserDetailsService(
+            @Value("${app.security.principal-cache.max-size:10000}") long maxSize,
+            @Value("${app.security.principal-cache.ttl:5m}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        // Exposes cache.gets{result=hit|miss}, cache.size, cache.evictions under cache=principals
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "principals");
+    }
+
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        // 1. Fetch User from DB
-        com.sentinel.secure_vault.model.User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        // 1. Fetch User from cache, or from DB on a miss (unknown users are not cached)
+        CachedPrincipal user = CacheLoads.getOrLoad(principals, email, this::loadFromDatabase);
 
         // 2. Return Spring Security User
         return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPassword(),
+                user.email(),
+                user.password(),
                 new ArrayList<>()
         );
     }
-}
\ No newline at end of file
+
+    // Database id of a user, from the same cache (the download path authorizes by id)
+    public Long loadUserId(String email) throws UsernameNotFoundException {
+        return CacheLoads.getOrLoad(principals, email, this::loadFromDatabase).id();
+    }
+
+    // Must be called whenever a user's password (or anything else cached here) changes
+    public void evict(String email) {
+        principals.synchronous().invalidate(email);
+    }
+
+    private CachedPrincipal loadFromDatabase(String email) {
+        com.sentinel.secure_vault.model.User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        return new CachedPrincipal(user.getId(), user.getEmail(), user.getPassword());
+    }
+
+    private record CachedPrincipal(Long id, String email, String password) {
+    }
+}
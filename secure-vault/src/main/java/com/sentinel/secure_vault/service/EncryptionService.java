@@ -1,17 +1,73 @@
 package com.sentinel.secure_vault.service;
 
+import com.sentinel.secure_vault.util.AESUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
-import javax.crypto.spec.SecretKeySpec;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
+// Files are stored as .sntl containers: a versioned header followed by independently
+// authenticated AES-256-GCM segments (see SntlHeader). Files written before the container existed
+// are bare AES/ECB ciphertext; they are still readable here and ReencryptionMigration converts them.
+// Ciphers and decoded keys come from AESUtil, which pools and reuses them.
+// Segments are independent, so large files are sealed/opened on several cores (cryptoExecutor);
+// below the parallel threshold everything runs on the caller's thread.
 @Service
 public class EncryptionService {
 
     private static final String ALGORITHM = "AES";
 
+    // Plaintext bytes per .sntl segment: the unit of random access and of authentication
+    public static final int SEGMENT_SIZE = 64 * 1024;
+
+    // Legacy format: "AES" is AES/ECB/PKCS5Padding. Every 16-byte block decrypts on its own,
+    // so range reads work block by block; padding is stripped by hand (see decryptLegacyRange).
+    private static final String LEGACY_TRANSFORMATION = "AES";
+    private static final String LEGACY_BLOCK_TRANSFORMATION = "AES/ECB/NoPadding";
+    private static final int BLOCK_SIZE = 16;
+
+    // Ciphertext is read in chunks of this size when decrypting legacy files
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final SecureRandom random = new SecureRandom();
+
+    // null = always sequential
+    private final ExecutorService executor;
+    private final long parallelThreshold;
+    // Segments in flight per stream: enough to keep every worker busy, bounded for memory
+    private final int window;
+
+    public EncryptionService() {
+        this(null, DataSize.ofMegabytes(4));
+    }
+
+    @Autowired
+    public EncryptionService(@Qualifier("cryptoExecutor") ExecutorService executor,
+                             @Value("${app.crypto.parallel-threshold:4MB}") DataSize parallelThreshold) {
+        this.executor = executor;
+        this.parallelThreshold = parallelThreshold.toBytes();
+        int workers = executor instanceof ForkJoinPool pool ? pool.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.window = workers * 2;
+    }
+
     // 1. Generate a new Secret Key
     public SecretKey generateKey() throws Exception {
         KeyGenerator keyGen = KeyGenerator.getInstance(ALGORITHM);
@@ -19,27 +75,271 @@ public class EncryptionService {
         return keyGen.generateKey();
     }
 
-    // 2. Encrypt Bytes (Used in Upload)
+    // 2. Encrypt Bytes into a .sntl container
     public byte[] encrypt(byte[] data, SecretKey key) throws Exception {
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        cipher.init(Cipher.ENCRYPT_MODE, key);
-        return cipher.doFinal(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + data.length / 1024 + 64);
+        encrypt(new ByteArrayInputStream(data), out, key);
+        return out.toByteArray();
+    }
+
+    // 2b. Encrypt a Stream (Used in Upload)
+    // Reads the plaintext as it comes and seals one segment at a time straight into 'out',
+    // so memory use does not grow with the file size. Returns the container size.
+    public long encrypt(InputStream in, OutputStream out, SecretKey key) throws Exception {
+        try (SntlEncryptingOutputStream sntl = newEncryptingStream(out, key)) {
+            in.transferTo(sntl);
+            return sntl.finish();
+        }
     }
 
-    // 3. Decrypt Bytes using String Key (Used in Download)
+    // Starts a new .sntl container on 'out' with a fresh nonce prefix
+    public SntlEncryptingOutputStream newEncryptingStream(OutputStream out, SecretKey key) throws IOException {
+        return new SntlEncryptingOutputStream(out, key, SntlHeader.create(SEGMENT_SIZE, random),
+                executor, window, parallelThreshold);
+    }
+
+    // Starts the header of a container that will be written in separate parts (chunked uploads)
+    public SntlHeader newHeader() {
+        return SntlHeader.create(SEGMENT_SIZE, random);
+    }
+
+    // Encrypts one part of a container whose header was made by newHeader().
+    // 'firstSegment' is the part's offset in segments; the part starting at 0 also carries the header.
+    public SntlEncryptingOutputStream newPartStream(OutputStream out, SecretKey key, SntlHeader header,
+                                                    long firstSegment, boolean finalPart) throws IOException {
+        return new SntlEncryptingOutputStream(out, key, header, firstSegment, finalPart,
+                executor, window, parallelThreshold);
+    }
+
+    // 3. Decrypt a Whole .sntl Container held in memory
     public byte[] decrypt(byte[] encryptedData, String base64Key) throws Exception {
-        // Convert String Key back to SecretKey object
-        byte[] decodedKey = Base64.getDecoder().decode(base64Key);
-        SecretKey originalKey = new SecretKeySpec(decodedKey, 0, decodedKey.length, ALGORITHM);
+        CiphertextSource source = CiphertextSource.of(encryptedData);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long length = plaintextLength(source, base64Key, (int) SntlHeader.VERSION_1);
+        if (length > 0) {
+            decryptRange(source, base64Key, (int) SntlHeader.VERSION_1, 0, length - 1, out);
+        }
+        return out.toByteArray();
+    }
+
+    // 4. Plaintext Length of a Stored File
+    // .sntl: follows from the container size. Legacy: only the last block is decrypted,
+    // its padding byte says how much of it is real data.
+    // 'cipherFormat' is the file's secure_files.cipher_format (see headerFor).
+    public long plaintextLength(CiphertextSource source, String base64Key, Integer cipherFormat) throws Exception {
+        SntlHeader header = headerFor(source, cipherFormat);
+        if (header != null) {
+            return header.plaintextLength(source.size());
+        }
+
+        long size = source.size();
+        if (size == 0 || size % BLOCK_SIZE != 0) {
+            throw new IllegalStateException("Encrypted content is corrupted (size " + size + ")");
+        }
+
+        byte[] lastBlock;
+        try (InputStream in = source.open(size - BLOCK_SIZE, BLOCK_SIZE)) {
+            lastBlock = in.readNBytes(BLOCK_SIZE);
+        }
+
+        Cipher cipher = AESUtil.borrow(LEGACY_BLOCK_TRANSFORMATION);
+        int padding;
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, AESUtil.toKey(base64Key));
+            padding = cipher.doFinal(lastBlock)[BLOCK_SIZE - 1];
+        } finally {
+            AESUtil.release(cipher);
+        }
+
+        if (padding < 1 || padding > BLOCK_SIZE) {
+            throw new IllegalStateException("Encrypted content is corrupted (bad padding)");
+        }
+        return size - padding;
+    }
+
+    // 5. Decrypt a Byte Range into a Stream (Used in Download)
+    // Decrypts plaintext bytes [start, end] (inclusive) by reading only the segments that cover them,
+    // so a seek in a large video costs a few segments of crypto work.
+    // Every .sntl segment read is authenticated; tampering fails with an AEADBadTagException.
+    // The caller must clamp 'end' to plaintextLength() - 1.
+    public void decryptRange(CiphertextSource source, String base64Key, Integer cipherFormat, long start, long end,
+                             OutputStream out) throws Exception {
+        SntlHeader header = headerFor(source, cipherFormat);
+        if (header == null) {
+            decryptLegacyRange(source, base64Key, start, end, out);
+            return;
+        }
+
+        long segmentSize = header.getSegmentSize();
+        long containerSize = source.size();
+        long lastSegmentOfFile = header.segmentCount(containerSize) - 1;
+        long firstSegment = start / segmentSize;
+        long lastSegment = end / segmentSize;
+
+        long offset = header.segmentOffset(firstSegment);
+        long cipherLength = Math.min(header.segmentOffset(lastSegment + 1), containerSize) - offset;
+
+        SecretKey key = AESUtil.toKey(base64Key);
+        boolean last = lastSegment == lastSegmentOfFile;
+
+        if (executor != null && end - start + 1 >= parallelThreshold) {
+            decryptSegmentsInParallel(source, header, key, offset, cipherLength, firstSegment, lastSegment,
+                    last, start, end, out);
+            return;
+        }
+
+        byte[] sealed = new byte[header.getSegmentSize() + SntlHeader.TAG_LENGTH];
+        byte[] plain = new byte[header.getSegmentSize()];
+
+        Cipher cipher = AESUtil.borrow(SntlEncryptingOutputStream.TRANSFORMATION);
+        try (InputStream in = source.open(offset, cipherLength)) {
+            for (long index = firstSegment; index <= lastSegment; index++) {
+                int read = readSegment(in, sealed);
+                int produced = openSegment(cipher, key, header, index, index == lastSegmentOfFile,
+                        sealed, read, plain);
+
+                // Part of this segment that falls inside [start, end]
+                long segmentStart = index * segmentSize;
+                int from = (int) Math.max(start - segmentStart, 0);
+                int to = (int) Math.min(end - segmentStart + 1, produced);
+                out.write(plain, from, to - from);
+            }
+        } finally {
+            AESUtil.release(cipher);
+        }
+    }
+
+    // Same as the loop in decryptRange, but each segment is authenticated and decrypted on the
+    // crypto executor while the next ones are read; results are written back in order.
+    private void decryptSegmentsInParallel(CiphertextSource source, SntlHeader header, SecretKey key,
+                                           long offset, long cipherLength, long firstSegment, long lastSegment,
+                                           boolean lastIsFinal, long start, long end,
+                                           OutputStream out) throws IOException {
+        long segmentSize = header.getSegmentSize();
+        OrderedSegmentWriter writer = new OrderedSegmentWriter(executor, window, out);
+        try (InputStream in = source.open(offset, cipherLength)) {
+            for (long index = firstSegment; index <= lastSegment; index++) {
+                byte[] sealed = new byte[header.getSegmentSize() + SntlHeader.TAG_LENGTH];
+                int read = readSegment(in, sealed);
+                long segment = index;
+                boolean last = lastIsFinal && index == lastSegment;
+
+                writer.submit(() -> {
+                    byte[] plain = new byte[header.getSegmentSize()];
+                    Cipher cipher = AESUtil.borrow(SntlEncryptingOutputStream.TRANSFORMATION);
+                    int produced;
+                    try {
+                        produced = openSegment(cipher, key, header, segment, last, sealed, read, plain);
+                    } finally {
+                        AESUtil.release(cipher);
+                    }
+                    long segmentStart = segment * segmentSize;
+                    int from = (int) Math.max(start - segmentStart, 0);
+                    int to = (int) Math.min(end - segmentStart + 1, produced);
+                    return from == 0 && to == plain.length ? plain : Arrays.copyOfRange(plain, from, to);
+                }, true);
+            }
+            writer.drain();
+        } finally {
+            writer.cancel();
+        }
+    }
+
+    private static int readSegment(InputStream in, byte[] sealed) throws IOException {
+        int read = in.readNBytes(sealed, 0, sealed.length);
+        if (read < SntlHeader.TAG_LENGTH) {
+            throw new IllegalStateException("Encrypted content ended early");
+        }
+        return read;
+    }
+
+    private static int openSegment(Cipher cipher, SecretKey key, SntlHeader header, long index, boolean last,
+                                   byte[] sealed, int read, byte[] plain) throws GeneralSecurityException {
+        cipher.init(Cipher.DECRYPT_MODE, key,
+                new GCMParameterSpec(SntlHeader.TAG_LENGTH * 8, header.iv(index, last)));
+        cipher.updateAAD(header.aad());
+        return cipher.doFinal(sealed, 0, read, plain, 0);
+    }
+
+    // True for files written before the .sntl container existed (bare AES/ECB)
+    public boolean isLegacy(CiphertextSource source) throws IOException {
+        return readHeader(source) == null;
+    }
+
+    // Streams the whole plaintext of a legacy file (used to re-encrypt it into a container)
+    public InputStream openLegacyPlaintext(CiphertextSource source, String base64Key) throws Exception {
+        Cipher cipher = Cipher.getInstance(LEGACY_TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, AESUtil.toKey(base64Key));
+        return new CipherInputStream(source.open(0, source.size()), cipher);
+    }
+
+    // The decoder follows the format recorded for the file, never the content: a container whose
+    // header was stripped or damaged must fail, not be read as unauthenticated AES/ECB.
+    // null = legacy AES/ECB, 1 = .sntl container; returns null for legacy.
+    private SntlHeader headerFor(CiphertextSource source, Integer cipherFormat) throws IOException {
+        if (cipherFormat == null) {
+            return null;
+        }
+        if (cipherFormat != SntlHeader.VERSION_1) {
+            throw new IllegalStateException("Unknown cipher format " + cipherFormat);
+        }
+        SntlHeader header = readHeader(source);
+        if (header == null) {
+            throw new IllegalStateException("Encrypted content is corrupted (not a .sntl container)");
+        }
+        return header;
+    }
+
+    private SntlHeader readHeader(CiphertextSource source) throws IOException {
+        long size = source.size();
+        if (size < SntlHeader.LENGTH + SntlHeader.TAG_LENGTH) {
+            return null;
+        }
+        byte[] prefix;
+        try (InputStream in = source.open(0, SntlHeader.LENGTH)) {
+            prefix = in.readNBytes(SntlHeader.LENGTH);
+        }
+        return SntlHeader.hasMagic(prefix) ? SntlHeader.parse(prefix) : null;
+    }
+
+    private void decryptLegacyRange(CiphertextSource source, String base64Key, long start, long end,
+                                    OutputStream out) throws IOException, GeneralSecurityException {
+        long firstBlock = start / BLOCK_SIZE;
+        long lastBlock = end / BLOCK_SIZE;
+        long offset = firstBlock * BLOCK_SIZE;
+        long cipherLength = (lastBlock - firstBlock + 1) * BLOCK_SIZE;
+
+        byte[] cipherChunk = new byte[CHUNK_SIZE];
+        byte[] plainChunk = new byte[CHUNK_SIZE];
+
+        // Bytes of the first block that sit before 'start', and bytes still to send
+        long skip = start - offset;
+        long remaining = end - start + 1;
+
+        Cipher cipher = AESUtil.borrow(LEGACY_BLOCK_TRANSFORMATION);
+        try (InputStream in = source.open(offset, cipherLength)) {
+            cipher.init(Cipher.DECRYPT_MODE, AESUtil.toKey(base64Key));
+            while (remaining > 0) {
+                int read = in.readNBytes(cipherChunk, 0, CHUNK_SIZE);
+                if (read == 0) {
+                    throw new IllegalStateException("Encrypted content ended early");
+                }
+
+                int produced = cipher.update(cipherChunk, 0, read, plainChunk);
+                int from = (int) Math.min(skip, produced);
+                int count = (int) Math.min(produced - from, remaining);
 
-        // Decrypt
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        cipher.init(Cipher.DECRYPT_MODE, originalKey);
-        return cipher.doFinal(encryptedData);
+                out.write(plainChunk, from, count);
+                skip -= from;
+                remaining -= count;
+            }
+        } finally {
+            AESUtil.release(cipher);
+        }
     }
 
     // Helper: Convert Key to String for Database Storage
     public String encodeKey(SecretKey key) {
         return Base64.getEncoder().encodeToString(key.getEncoded());
     }
-}
\ No newline at end of file
+}
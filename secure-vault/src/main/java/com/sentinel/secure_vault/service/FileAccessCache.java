@@ -0,0 +1,112 @@
+package com.sentinel.secure_vault.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.sentinel.secure_vault.dto.FileAccessDto;
+import com.sentinel.secure_vault.repository.FileRepository;
+import com.sentinel.secure_vault.repository.FileShareRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Who may read each file, kept in memory so repeated downloads of the same file
+// authorize (and find their blob) without a database round trip.
+// An entry is the owner id plus the recipients' ids as a sorted long[] (binary search, no boxing),
+// next to the access metadata the download needs. Entries are bounded by count and invalidated by
+// every share/revoke/delete/re-encryption on this instance. Changes made on another instance are
+// only seen once the entry expires: the TTL is the longest a revoked recipient can still download there.
+@Component
+public class FileAccessCache {
+
+    // Files shared with more users than this are not given a recipient list; their shares are checked in the database
+    private static final int MAX_CACHED_RECIPIENTS = 10_000;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FileShareRepository fileShareRepository;
+
+    private final AsyncCache<Long, FileAcl> entries;
+
+    @Autowired
+    public FileAccessCache(
+            @Value("${app.security.acl-cache.max-size:50000}") long maxSize,
+            @Value("${app.security.acl-cache.ttl:1m}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        this(maxSize, ttl, meterRegistry, Ticker.systemTicker());
+    }
+
+    // Tests pass their own ticker to step over the TTL
+    FileAccessCache(long maxSize, Duration ttl, MeterRegistry meterRegistry, Ticker ticker) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .recordStats()
+                .buildAsync();
+        // Exposes cache.gets{result=hit|miss}, cache.size, cache.evictions under cache=fileAcl
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "fileAcl");
+    }
+
+    // Throws if the file does not exist (or its content is not in the blob store yet); nothing is cached then
+    public FileAcl get(Long fileId) {
+        return CacheLoads.getOrLoad(entries, fileId, this::load);
+    }
+
+    public boolean canRead(FileAcl acl, long userId) {
+        if (acl.file().getOwnerId() == userId) {
+            return true;
+        }
+        if (acl.recipients() == null) {
+            return fileShareRepository.existsByFile_IdAndSharedWith_Id(acl.file().getId(), userId);
+        }
+        return Arrays.binarySearch(acl.recipients(), userId) >= 0;
+    }
+
+    // Drops the entries now and, inside a transaction, again after commit,
+    // so a download running concurrently cannot put back what the transaction just changed
+    public void invalidate(Collection<Long> fileIds) {
+        entries.synchronous().invalidateAll(fileIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> ids = List.copyOf(fileIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entries.synchronous().invalidateAll(ids);
+                }
+            });
+        }
+    }
+
+    private FileAcl load(Long fileId) {
+        FileAccessDto file = fileRepository.findAccessById(fileId)
+                .orElseThrow(() -> new RuntimeException("File not found"));
+        if (file.getBlobRef() == null) {
+            throw new RuntimeException("File content is missing or still being migrated.");
+        }
+
+        // One row past the limit is enough to know the file has too many recipients
+        List<Long> ids = fileShareRepository.findRecipientIds(fileId, PageRequest.of(0, MAX_CACHED_RECIPIENTS + 1));
+        long[] recipients = null;
+        if (ids.size() <= MAX_CACHED_RECIPIENTS) {
+            recipients = ids.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+        return new FileAcl(file, recipients);
+    }
+
+    // recipients == null: too many to keep, ask the database
+    public record FileAcl(FileAccessDto file, long[] recipients) {
+    }
+}
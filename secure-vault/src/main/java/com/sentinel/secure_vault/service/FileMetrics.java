@@ -0,0 +1,176 @@
+package com.sentinel.secure_vault.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Meter.MeterProvider;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Metrics for file operations:
+//   files.operation{operation, phase}  time per phase (db / crypto / write) of each FileService operation
+//   files.encrypted.bytes, files.decrypted.bytes  plaintext bytes per upload / download
+//   files.active{direction=upload|download}  transfers in progress
+// Timers run inside the service methods, so the commit of a @Transactional operation is not included.
+@Component
+public class FileMetrics {
+
+    public enum Phase {
+        DB("db"), CRYPTO("crypto"), WRITE("write");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterProvider<Timer> operations;
+    private final DistributionSummary encryptedBytes;
+    private final DistributionSummary decryptedBytes;
+    private final AtomicInteger activeUploads = new AtomicInteger();
+    private final AtomicInteger activeDownloads = new AtomicInteger();
+
+    public FileMetrics(MeterRegistry meterRegistry) {
+        this.operations = Timer.builder("files.operation")
+                .description("Time spent per phase of a file operation")
+                .publishPercentileHistogram()
+                .withRegistry(meterRegistry);
+        this.encryptedBytes = bytes("files.encrypted.bytes", "Plaintext bytes encrypted per upload", meterRegistry);
+        this.decryptedBytes = bytes("files.decrypted.bytes", "Plaintext bytes decrypted per download", meterRegistry);
+        Gauge.builder("files.active", activeUploads, AtomicInteger::get)
+                .tag("direction", "upload")
+                .description("Uploads in progress")
+                .register(meterRegistry);
+        Gauge.builder("files.active", activeDownloads, AtomicInteger::get)
+                .tag("direction", "download")
+                .description("Downloads in progress")
+                .register(meterRegistry);
+    }
+
+    private static DistributionSummary bytes(String name, String description, MeterRegistry meterRegistry) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit(BaseUnits.BYTES)
+                .publishPercentileHistogram()
+                // Keeps the bucket count down; uploads are capped at 50 MB anyway
+                .minimumExpectedValue(1024.0)
+                .maximumExpectedValue(1024.0 * 1024 * 1024)
+                .register(meterRegistry);
+    }
+
+    // Starts timing an operation in the given phase; call stop() in a finally block.
+    // For operations whose phase changes (upload, download); the rest use timed().
+    public PhaseTimer start(String operation, Phase phase) {
+        return new PhaseTimer(operation, phase);
+    }
+
+    // Runs an operation that is all database work, timed as its db phase (also when it throws)
+    public <T> T timed(String operation, Supplier<T> work) {
+        PhaseTimer timer = start(operation, Phase.DB);
+        try {
+            return work.get();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    public void encrypted(long bytes) {
+        encryptedBytes.record(bytes);
+    }
+
+    public void decrypted(long bytes) {
+        decryptedBytes.record(bytes);
+    }
+
+    // Counts an upload as active until the returned handle is closed
+    public Transfer upload() {
+        return new Transfer(activeUploads);
+    }
+
+    public Transfer download() {
+        return new Transfer(activeDownloads);
+    }
+
+    public static final class Transfer implements AutoCloseable {
+
+        private final AtomicInteger active;
+
+        private Transfer(AtomicInteger active) {
+            this.active = active;
+            active.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            active.decrementAndGet();
+        }
+    }
+
+    // Splits one operation's wall time into phases: time between two phase() calls goes to the
+    // earlier phase. Each phase that was entered is recorded once, when the operation stops.
+    // Not thread-safe: one timer per operation and thread.
+    public final class PhaseTimer {
+
+        private final String operation;
+        private final long[] nanos = new long[Phase.values().length];
+        private final boolean[] entered = new boolean[Phase.values().length];
+        private Phase current;
+        private long since;
+
+        private PhaseTimer(String operation, Phase phase) {
+            this.operation = operation;
+            this.current = phase;
+            this.entered[phase.ordinal()] = true;
+            this.since = System.nanoTime();
+        }
+
+        public void phase(Phase next) {
+            long now = System.nanoTime();
+            nanos[current.ordinal()] += now - since;
+            entered[next.ordinal()] = true;
+            current = next;
+            since = now;
+        }
+
+        public void stop() {
+            phase(current);
+            for (Phase phase : Phase.values()) {
+                if (entered[phase.ordinal()]) {
+                    operations.withTags("operation", operation, "phase", phase.tag)
+                            .record(nanos[phase.ordinal()], TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        // Wraps a response stream so the time spent writing to it counts as WRITE, and the rest as
+        // the phase that was current (e.g. CRYPTO while decrypting into it)
+        public OutputStream timeWrites(OutputStream out) {
+            return new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    Phase before = current;
+                    phase(Phase.WRITE);
+                    try {
+                        out.write(b, off, len);
+                    } finally {
+                        phase(before);
+                    }
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+            };
+        }
+    }
+}
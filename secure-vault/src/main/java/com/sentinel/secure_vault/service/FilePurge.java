@@ -0,0 +1,144 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.storage.BlobStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Removes files the owner deleted (tombstoned by FileService) and reclaims their storage.
+// Works in small batches with a pause in between, so deleting thousands of files (or old rows that
+// still carry a large file_data LONGBLOB) never holds long row locks or builds a big undo log.
+// A blob is only deleted once no row and no content reference (deduplicated uploads) points at it.
+// Blobs retired by ReencryptionMigration are deleted once they are older than 'retired-grace'.
+@Slf4j
+@Component
+public class FilePurge {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Value("${app.storage.purge.batch-size:50}")
+    private int batchSize;
+
+    // Upper bound per run; whatever is left is picked up by the next run
+    @Value("${app.storage.purge.max-batches:20}")
+    private int maxBatches;
+
+    @Value("${app.storage.purge.pause:200ms}")
+    private Duration pause;
+
+    // Longer than any download can run (spring.mvc.async.request-timeout)
+    @Value("${app.storage.purge.retired-grace:1h}")
+    private Duration retiredGrace;
+
+    @Scheduled(initialDelayString = "${app.storage.purge.interval:1m}",
+            fixedDelayString = "${app.storage.purge.interval:1m}")
+    public void purge() {
+        int purged = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int count = purgeBatch();
+            purged += count;
+            if (count < batchSize) {
+                break;
+            }
+            try {
+                Thread.sleep(pause.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (purged > 0) {
+            log.info("Purged {} deleted file(s)", purged);
+        }
+        purgeRetiredBlobs();
+    }
+
+    private void purgeRetiredBlobs() {
+        List<String> refs = jdbcTemplate.queryForList(
+                "SELECT blob_ref FROM retired_blobs WHERE retired_at < ? LIMIT ?", String.class,
+                LocalDateTime.now().minus(retiredGrace), batchSize);
+        if (refs.isEmpty()) {
+            return;
+        }
+
+        // A blob that is in use again (e.g. a re-run migration) only loses its retired_blobs row
+        Set<String> unused = new HashSet<>(refs);
+        unused.removeAll(stillReferenced(refs));
+        List<String> done = new ArrayList<>(refs);
+        for (String ref : unused) {
+            try {
+                blobStore.delete(ref);
+            } catch (IOException e) {
+                log.warn("Could not delete blob {}: {}", ref, e.getMessage());
+                done.remove(ref); // Tried again on the next run
+            }
+        }
+        if (!done.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM retired_blobs WHERE blob_ref IN (" + placeholders(done.size()) + ")", done.toArray());
+        }
+    }
+
+    private int purgeBatch() {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, blob_ref FROM secure_files WHERE deleted_at IS NOT NULL LIMIT ?", batchSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<Object> ids = rows.stream().map(row -> row.get("id")).toList();
+        Set<String> refs = new HashSet<>();
+        rows.stream().map(row -> (String) row.get("blob_ref")).filter(Objects::nonNull).forEach(refs::add);
+
+        // Shares were already removed when the file was deleted; this catches any added in between
+        jdbcTemplate.update("DELETE FROM file_shares WHERE file_id IN (" + placeholders(ids.size()) + ")", ids.toArray());
+        jdbcTemplate.update("DELETE FROM secure_files WHERE id IN (" + placeholders(ids.size()) + ")", ids.toArray());
+
+        if (!refs.isEmpty()) {
+            refs.removeAll(stillReferenced(List.copyOf(refs)));
+            for (String ref : refs) {
+                try {
+                    blobStore.delete(ref);
+                } catch (IOException e) {
+                    log.warn("Could not delete blob {}: {}", ref, e.getMessage());
+                }
+            }
+        }
+        return rows.size();
+    }
+
+    // Blobs that another row (live or still tombstoned) or a content reference still uses
+    private Set<String> stillReferenced(List<String> refs) {
+        String in = placeholders(refs.size());
+        Object[] args = new Object[refs.size() * 2];
+        for (int i = 0; i < refs.size(); i++) {
+            args[i] = refs.get(i);
+            args[refs.size() + i] = refs.get(i);
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT blob_ref FROM secure_files WHERE blob_ref IN (" + in + ") " +
+                        "UNION SELECT blob_ref FROM content_refs WHERE blob_ref IN (" + in + ")",
+                String.class, args));
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
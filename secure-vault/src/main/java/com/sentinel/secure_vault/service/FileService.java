@@ -1,25 +1,60 @@
 package com.sentinel.secure_vault.service;
 
-import com.sentinel.secure_vault.model.FileShare;
+import com.sentinel.secure_vault.config.SampledLogFilter;
+import com.sentinel.secure_vault.dto.BulkDeleteResultDto;
+import com.sentinel.secure_vault.dto.FileAccessDto;
+import com.sentinel.secure_vault.dto.FileMetadataDto;
+import com.sentinel.secure_vault.dto.ShareResultDto;
+import com.sentinel.secure_vault.dto.SharedFileDto;
+import com.sentinel.secure_vault.dto.StorageUsageDto;
+import com.sentinel.secure_vault.model.ContentReference;
 import com.sentinel.secure_vault.model.SecureFile;
 import com.sentinel.secure_vault.model.User;
+import com.sentinel.secure_vault.repository.ContentReferenceRepository;
 import com.sentinel.secure_vault.repository.FileRepository;
 import com.sentinel.secure_vault.repository.FileShareRepository;
 import com.sentinel.secure_vault.repository.UserRepository;
+import com.sentinel.secure_vault.storage.BlobStore;
+import com.sentinel.secure_vault.storage.PendingBlob;
+import com.sentinel.secure_vault.storage.StoredBlob;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
 
 import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class FileService {
 
-    // ❌ REMOVED: private final String UPLOAD_DIR... (Not needed for DB storage)
+    // Encrypted content lives in the BlobStore; rows only keep the reference
 
     @Autowired
     private FileRepository fileRepository;
@@ -33,173 +68,539 @@ public class FileService {
     @Autowired
     private EncryptionService encryptionService;
 
-    // 1. STORE FILE (Owner Creates .sntl -> Saved to DB)
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private ContentReferenceRepository contentReferenceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FileAccessCache fileAccessCache;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private FileMetrics fileMetrics;
+
+    // Upper bound on files x recipients in one batch share/revoke
+    private static final int MAX_BATCH_PAIRS = 10_000;
+
+    // Upper bound on files in one bulk delete
+    private static final int MAX_BULK_DELETE = 1_000;
+
+    // Per-user storage quota, in plaintext bytes
+    @Value("${app.storage.user-quota}")
+    private DataSize userQuota;
+
+    // Opt-in: identical uploads by the same owner share one stored copy
+    @Value("${app.storage.dedup:false}")
+    private boolean dedupEnabled;
+
+    // 1. STORE FILE (Owner Creates .sntl -> Saved to BlobStore, reference saved to DB)
+    // Timed as "upload": db (owner, quota, row) vs. crypto (reading, encrypting and storing the content)
     public String storeFile(MultipartFile file, String ownerEmail) throws Exception {
+        FileMetrics.PhaseTimer timer = fileMetrics.start("upload", FileMetrics.Phase.DB);
+        try (FileMetrics.Transfer transfer = fileMetrics.upload()) {
+            return storeFile(file, ownerEmail, timer);
+        } finally {
+            timer.stop();
+        }
+    }
 
-        // Generate Key & Encrypt the raw bytes
-        SecretKey key = encryptionService.generateKey();
-        byte[] encryptedData = encryptionService.encrypt(file.getBytes(), key);
+    private String storeFile(MultipartFile file, String ownerEmail, FileMetrics.PhaseTimer timer) throws Exception {
 
         User owner = userRepository.findByEmail(ownerEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        SecureFile secureFile = new SecureFile();
-        secureFile.setFileName(file.getOriginalFilename());
-        secureFile.setFileType(file.getContentType());
-        secureFile.setOwner(owner);
-        secureFile.setEncryptedKey(encryptionService.encodeKey(key));
+        // Reserve the space first: an upload over quota is rejected before any encryption work.
+        // The reservation is given back below if anything fails.
+        long plainSize = file.getSize();
+        reserveQuota(owner, plainSize);
 
-        // ✅ NEW: Save encrypted bytes DIRECTLY into the Database
-        // This prevents files from being deleted when Render restarts.
-        secureFile.setFileData(encryptedData);
+        try {
+            // Generate Key & Encrypt the upload chunk by chunk straight into the blob store.
+            // Neither the plaintext nor the ciphertext is ever held in memory as a whole.
+            // With dedup on, the plaintext is hashed on the way through as well.
+            SecretKey key = encryptionService.generateKey();
+            MessageDigest contentDigest = dedupEnabled ? contentDigest(owner) : null;
+            String contentHash = null;
+            String blobRef;
+            long encryptedSize;
+            try (PendingBlob pending = blobStore.create();
+                 InputStream in = contentDigest == null ? file.getInputStream()
+                         : new DigestInputStream(file.getInputStream(), contentDigest)) {
+                timer.phase(FileMetrics.Phase.CRYPTO);
+                encryptedSize = encryptionService.encrypt(in, pending.outputStream(), key);
+                fileMetrics.encrypted(plainSize);
+                timer.phase(FileMetrics.Phase.DB);
+
+                // DEDUP: the owner already stored this content -> reference it, and the
+                // new copy is dropped without ever being committed
+                if (contentDigest != null) {
+                    contentHash = HexFormat.of().formatHex(contentDigest.digest());
+                    SecureFile duplicate = saveDuplicate(owner, file, contentHash, plainSize);
+                    if (duplicate != null) {
+                        return "File encrypted and stored. ID: " + duplicate.getId();
+                    }
+                }
+                blobRef = pending.commit();
+            }
+
+            SecureFile secureFile = newSecureFile(owner, file.getOriginalFilename(), file.getContentType(),
+                    encryptionService.encodeKey(key), blobRef, plainSize, encryptedSize);
+
+            try {
+                fileRepository.save(secureFile);
+            } catch (RuntimeException e) {
+                // Don't leave an orphaned blob behind if the row could not be written
+                blobStore.delete(blobRef);
+                throw e;
+            }
+
+            if (contentHash != null) {
+                trackContent(owner, contentHash, blobRef);
+            }
+            return "File encrypted and stored. ID: " + secureFile.getId();
 
-        fileRepository.save(secureFile);
-        return "File encrypted and stored in Database. ID: " + secureFile.getId();
+        } catch (Exception e) {
+            userRepository.releaseBytes(owner.getId(), plainSize);
+            throw e;
+        }
     }
 
-    // 3. DOWNLOAD / STREAM FILE (Decrypts from DB)
-    public byte[] downloadFile(Long fileId, String requesterEmail) throws Exception {
-        // 1. Find the file
-        SecureFile file = fileRepository.findById(fileId)
-                .orElseThrow(() -> new RuntimeException("File not found"));
+    // Saves a new row pointing at content the owner already stored, or returns null if there is none.
+    // Each file still counts fully against the quota; only the stored bytes are shared.
+    private SecureFile saveDuplicate(User owner, MultipartFile file, String contentHash, long plainSize) throws IOException {
+        ContentReference existing = contentReferenceRepository
+                .findByOwner_IdAndContentHash(owner.getId(), contentHash).orElse(null);
+        if (existing == null || contentReferenceRepository.acquire(existing.getBlobRef()) == 0) {
+            return null; // New content, or its last file was deleted a moment ago
+        }
 
-        // 2. Permission Check (Owner OR Shared)
-        boolean isOwner = file.getOwner().getEmail().equalsIgnoreCase(requesterEmail);
-        boolean isShared = fileShareRepository.existsByFile_IdAndSharedWith_Email(fileId, requesterEmail);
+        String blobRef = existing.getBlobRef();
+        try {
+            SecureFile original = fileRepository.findFirstByBlobRef(blobRef).orElse(null);
+            if (original == null) {
+                // The last file with this content was deleted between the lookup and acquire():
+                // give the reference back and store the new copy instead. FilePurge deletes the
+                // old blob once nothing points at it.
+                releaseContent(blobRef);
+                return null;
+            }
+            SecureFile duplicate = newSecureFile(owner, file.getOriginalFilename(), file.getContentType(),
+                    original.getEncryptedKey(), blobRef, plainSize, original.getEncryptedSize());
+            return fileRepository.save(duplicate);
+        } catch (RuntimeException e) {
+            if (releaseContent(blobRef)) {
+                blobStore.delete(blobRef);
+            }
+            throw e;
+        }
+    }
 
-        if (!isOwner && !isShared) {
-            System.out.println("❌ ACCESS DENIED for: " + requesterEmail);
-            throw new RuntimeException("ACCESS DENIED: The owner has not granted you permission.");
+    // Starts counting references to a newly stored blob, so later duplicates can share it
+    private void trackContent(User owner, String contentHash, String blobRef) {
+        ContentReference reference = new ContentReference();
+        reference.setBlobRef(blobRef);
+        reference.setOwner(owner);
+        reference.setContentHash(contentHash);
+        reference.setRefCount(1);
+        try {
+            contentReferenceRepository.save(reference);
+        } catch (DataIntegrityViolationException e) {
+            // The same content was uploaded twice at once; this copy simply stays unshared
+        }
+    }
+
+    // Drops one reference to a blob. True if no file uses it any more, so it can be deleted.
+    private boolean releaseContent(String blobRef) {
+        if (contentReferenceRepository.release(blobRef) == 0) {
+            return true; // Not shared: the blob belonged to this file alone
+        }
+        return contentReferenceRepository.deleteIfUnreferenced(blobRef) == 1;
+    }
+
+    // Hash scoped to the owner: the owner id goes in first
+    private static MessageDigest contentDigest(User owner) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(ByteBuffer.allocate(Long.BYTES).putLong(owner.getId()).array());
+        return digest;
+    }
+
+    // Adds 'bytes' to the owner's usage, or fails if that would go over the quota
+    void reserveQuota(User owner, long bytes) {
+        if (userRepository.reserveBytes(owner.getId(), bytes, userQuota.toBytes()) == 0) {
+            throw new RuntimeException("Storage quota exceeded (" + userQuota.toMegabytes() + " MB).");
+        }
+    }
+
+    // Row for content that is already encrypted into the BlobStore (also used by ChunkedUploadService)
+    SecureFile newSecureFile(User owner, String fileName, String fileType, String encodedKey,
+                             String blobRef, long plainSize, long encryptedSize) {
+        SecureFile secureFile = new SecureFile();
+        secureFile.setFileName(fileName);
+        secureFile.setFileType(fileType);
+        secureFile.setOwner(owner);
+        secureFile.setEncryptedKey(encodedKey);
+        secureFile.setBlobRef(blobRef);
+        secureFile.setPlainSize(plainSize);
+        secureFile.setEncryptedSize(encryptedSize);
+        secureFile.setCipherFormat((int) SntlHeader.VERSION_1);
+        return secureFile;
+    }
+
+    // STORAGE USAGE (reads the maintained counter, never scans files)
+    public StorageUsageDto getUsage(String email) {
+        return fileMetrics.timed("usage", () -> {
+            long used = userRepository.findUsedBytesByEmail(email)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            return new StorageUsageDto(used, userQuota.toBytes());
+        });
+    }
+
+    // 3. DOWNLOAD / STREAM FILE (Decrypts from BlobStore)
+    // Returns a handle that decrypts lazily, so the controller can stream any byte range
+    // Only the db phase of "download" is timed here; FileStream times the rest
+    public FileStream openFileStream(Long fileId, String requesterEmail) throws Exception {
+        FileMetrics.PhaseTimer timer = fileMetrics.start("download", FileMetrics.Phase.DB);
+        try {
+            FileAccessDto file = checkReadAccess(fileId, requesterEmail);
+
+            // Open the Encrypted Blob (nothing is read or decrypted yet)
+            StoredBlob blob = openBlob(file.getBlobRef());
+            if (blob == null) {
+                // The cached entry may predate another instance moving the content (ReencryptionMigration)
+                fileAccessCache.invalidate(List.of(fileId));
+                file = checkReadAccess(fileId, requesterEmail);
+                blob = openBlob(file.getBlobRef());
+            }
+            if (blob == null) {
+                throw new RuntimeException("File content is missing or still being migrated.");
+            }
+            return new FileStream(file.getFileName(), file.getFileType(), blob, file.getEncryptedKey(),
+                    file.getCipherFormat(), encryptionService, fileMetrics);
+        } finally {
+            timer.stop();
         }
+    }
 
-        // 3. Read Encrypted Bytes from Database Entity (Not Disk)
-        byte[] encryptedContent = file.getFileData();
+    // Permission Check (Owner OR Shared), answered from FileAccessCache.
+    // Only the first download of a file (or one after a share change) goes to the database.
+    private FileAccessDto checkReadAccess(Long fileId, String requesterEmail) {
+        FileAccessCache.FileAcl acl = fileAccessCache.get(fileId);
+        long requesterId = userDetailsService.loadUserId(requesterEmail);
 
-        if (encryptedContent == null || encryptedContent.length == 0) {
-            throw new RuntimeException("File content is empty or corrupted in database.");
+        if (!fileAccessCache.canRead(acl, requesterId)) {
+            log.info(SampledLogFilter.SAMPLED, "Access denied to file {} for {}", fileId, requesterEmail);
+            throw new RuntimeException("ACCESS DENIED: The owner has not granted you permission.");
         }
+        return acl.file();
+    }
 
-        // 4. Decrypt using the stored key
-        return encryptionService.decrypt(encryptedContent, file.getEncryptedKey());
+    // null if the blob is not (or no longer) in the store
+    private StoredBlob openBlob(String blobRef) throws IOException {
+        if (blobRef == null || !blobStore.exists(blobRef)) {
+            return null;
+        }
+        return blobStore.open(blobRef);
     }
 
     // LIST SHARES
+    @Transactional(readOnly = true)
     public List<String> getFileShares(Long fileId, String ownerEmail) {
-        SecureFile file = fileRepository.findById(fileId)
-                .orElseThrow(() -> new RuntimeException("File not found"));
+        return fileMetrics.timed("list-shares", () -> {
+            SecureFile file = fileRepository.findById(fileId)
+                    .orElseThrow(() -> new RuntimeException("File not found"));
 
-        if (!file.getOwner().getEmail().equals(ownerEmail)) {
-            throw new RuntimeException("Access Denied: You are not the owner.");
-        }
+            if (!file.getOwner().getEmail().equals(ownerEmail)) {
+                throw new RuntimeException("Access Denied: You are not the owner.");
+            }
 
-        // Return list of emails
-        return fileShareRepository.findByFile_Id(fileId).stream()
-                .map(share -> share.getSharedWith().getEmail())
-                .collect(Collectors.toList());
+            // Return list of emails
+            return fileShareRepository.findRecipientEmails(fileId);
+        });
     }
 
     // SHARE FILE
+    @Transactional
     public String shareFile(Long fileId, String ownerEmail, String shareWithEmail) {
-        // Normalize email to lowercase to prevent mismatch
-        String targetEmail = shareWithEmail.toLowerCase().trim();
-
-        if (ownerEmail.equals(targetEmail)) throw new RuntimeException("You already own this file.");
+        return fileMetrics.timed("share", () -> {
+            // Normalize email to lowercase to prevent mismatch
+            String targetEmail = shareWithEmail.toLowerCase().trim();
 
-        SecureFile file = fileRepository.findById(fileId)
-                .orElseThrow(() -> new RuntimeException("File not found"));
+            if (ownerEmail.equals(targetEmail)) throw new RuntimeException("You already own this file.");
 
-        if (!file.getOwner().getEmail().equals(ownerEmail)) {
-            throw new RuntimeException("Only the owner can share permissions.");
-        }
+            SecureFile file = fileRepository.findById(fileId)
+                    .orElseThrow(() -> new RuntimeException("File not found"));
 
-        // 🛑 CHECK: User MUST be registered
-        User receiver = userRepository.findByEmail(targetEmail)
-                .orElseThrow(() -> new RuntimeException("User '" + targetEmail + "' is not registered in our system."));
+            if (!file.getOwner().getEmail().equals(ownerEmail)) {
+                throw new RuntimeException("Only the owner can share permissions.");
+            }
 
-        // Check if already shared
-        if (fileShareRepository.existsByFile_IdAndSharedWith_Email(fileId, targetEmail)) {
-            return "File is already shared with " + targetEmail;
-        }
+            // 🛑 CHECK: User MUST be registered
+            User receiver = userRepository.findByEmail(targetEmail)
+                    .orElseThrow(() -> new RuntimeException("User '" + targetEmail + "' is not registered in our system."));
 
-        FileShare share = new FileShare();
-        share.setFile(file);
-        share.setSharedWith(receiver);
-        fileShareRepository.save(share);
+            // Check if already shared (in the insert itself, so concurrent shares cannot both add a row)
+            if (fileShareRepository.insertIfAbsent(fileId, receiver.getId()) == 0) {
+                return "File is already shared with " + targetEmail;
+            }
+            fileAccessCache.invalidate(List.of(fileId));
 
-        return "Access granted to " + targetEmail;
+            return "Access granted to " + targetEmail;
+        });
     }
 
     // 4. LIST FILES (OWNER ONLY - Hides Shared Files)
-    public List<SecureFile> getAllFiles(String email) {
-        // Note: The fileData BLOB is lazy loaded usually, so this list won't crash your memory
-        return fileRepository.findByOwner_Email(email);
+    // Metadata only: no entities, keys or content are loaded
+    public List<FileMetadataDto> getAllFiles(String email) {
+        return fileMetrics.timed("list",
+                () -> fileRepository.findMetadataByOwnerEmail(email, Sort.by(Sort.Direction.DESC, "uploadTime")));
     }
 
-    // 5. DOWNLOAD .SNTL (Raw Encrypted from DB)
-    public byte[] downloadEncryptedSntl(Long fileId, String requesterEmail) throws Exception {
-        SecureFile fileEntity = fileRepository.findById(fileId)
-                .orElseThrow(() -> new RuntimeException("File not found"));
-
-        // Permissions Check (Owner OR Shared)
-        boolean isOwner = fileEntity.getOwner().getEmail().equalsIgnoreCase(requesterEmail);
-        boolean isShared = fileShareRepository.existsByFile_IdAndSharedWith_Email(fileId, requesterEmail);
-
-        if (!isOwner && !isShared) {
-            throw new RuntimeException("ACCESS DENIED");
-        }
-
-        // Return raw encrypted bytes from DB
-        return fileEntity.getFileData();
+    public Page<FileMetadataDto> getFiles(String email, Pageable pageable) {
+        return fileMetrics.timed("list", () -> fileRepository.findMetadataByOwnerEmail(email, pageable));
     }
 
-    public String getContentType(Long fileId) {
-        return fileRepository.findById(fileId).map(SecureFile::getFileType).orElse("application/octet-stream");
+    // 4b. SHARED WITH ME (files other users shared with this user), newest files first
+    public Page<SharedFileDto> getSharedWithMe(String email, Pageable pageable) {
+        return fileMetrics.timed("list-shared", () -> {
+            User user = userRepository.findByEmail(email)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            // The order is fixed by the query (index order); client sort parameters are ignored
+            return fileShareRepository.findSharedWithUser(user.getId(),
+                    PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        });
     }
 
-    public String getOriginalFileName(Long fileId) {
-        return fileRepository.findById(fileId).map(SecureFile::getFileName).orElse("unknown");
+    // 5. DOWNLOAD .SNTL (Raw Encrypted from BlobStore)
+    // Same single lookup as openFileStream; the caller copies the ciphertext to the response channel
+    public FileStream downloadEncryptedSntl(Long fileId, String requesterEmail) throws Exception {
+        return openFileStream(fileId, requesterEmail);
     }
 
     // 7. REVOKE ACCESS (Owner Only)
     @Transactional
     public String revokeAccess(Long fileId, String ownerEmail, String targetEmail) {
-        SecureFile file = fileRepository.findById(fileId)
-                .orElseThrow(() -> new RuntimeException("File not found"));
+        return fileMetrics.timed("revoke", () -> {
+            SecureFile file = fileRepository.findById(fileId)
+                    .orElseThrow(() -> new RuntimeException("File not found"));
 
-        if (!file.getOwner().getEmail().equalsIgnoreCase(ownerEmail)) {
-            throw new RuntimeException("Only the owner can revoke permissions.");
-        }
+            if (!file.getOwner().getEmail().equalsIgnoreCase(ownerEmail)) {
+                throw new RuntimeException("Only the owner can revoke permissions.");
+            }
 
-        // Delete the share record
-        fileShareRepository.deleteByFile_IdAndSharedWith_Email(fileId, targetEmail);
+            // Delete the share record
+            fileShareRepository.deleteByFile_IdAndSharedWith_Email(fileId, targetEmail);
+            fileAccessCache.invalidate(List.of(fileId));
 
-        return "Access revoked for " + targetEmail;
+            return "Access revoked for " + targetEmail;
+        });
     }
 
-    // 8. PERMANENT DELETE (Owner Only)
+    // 7b. BATCH SHARE (Owner Only): every file x every recipient
+    // A fixed number of queries however big the batch: owned files (1), recipients (1),
+    // existing shares (1), then a single JDBC batch of inserts, all in one transaction.
     @Transactional
-    public String deleteFile(Long fileId, String ownerEmail) {
-        SecureFile file = fileRepository.findById(fileId)
-                .orElseThrow(() -> new RuntimeException("File not found"));
+    public List<ShareResultDto> shareFiles(List<Long> fileIds, List<String> emails, String ownerEmail) {
+        return fileMetrics.timed("share-batch", () -> {
+            BatchScope scope = resolveBatch(fileIds, emails, ownerEmail);
+
+            List<ShareResultDto> results = new ArrayList<>();
+            List<Object[]> inserts = new ArrayList<>();
+            List<ShareResultDto> granted = new ArrayList<>();
+            for (Long fileId : scope.fileIds()) {
+                for (String email : scope.emails()) {
+                    String status = scope.check(fileId, email, ownerEmail);
+                    if (status == null) {
+                        Long userId = scope.userIds().get(email);
+                        if (scope.existing().contains(Map.entry(fileId, userId))) {
+                            status = ShareResultDto.ALREADY_SHARED;
+                        } else {
+                            inserts.add(new Object[]{fileId, userId});
+                            status = ShareResultDto.GRANTED;
+                        }
+                    }
+                    ShareResultDto result = new ShareResultDto(fileId, email, status);
+                    results.add(result);
+                    if (status.equals(ShareResultDto.GRANTED)) {
+                        granted.add(result);
+                    }
+                }
+            }
+
+            if (!inserts.isEmpty()) {
+                fileAccessCache.invalidate(scope.ownedIds());
+                // IGNORE: a concurrent share may have added some of these pairs since they were looked up
+                int[] counts = jdbcTemplate.batchUpdate(
+                        "INSERT IGNORE INTO file_shares (file_id, shared_to_user_id, shared_at) VALUES (?, ?, CURRENT_TIMESTAMP)",
+                        inserts);
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) {
+                        granted.get(i).setStatus(ShareResultDto.ALREADY_SHARED);
+                    }
+                }
+            }
+            return results;
+        });
+    }
 
-        // Security Check: Only Owner can delete
-        if (!file.getOwner().getEmail().equalsIgnoreCase(ownerEmail)) {
-            throw new RuntimeException("ACCESS DENIED: Only the owner can delete this file.");
+    // 7c. BATCH REVOKE (Owner Only): one DELETE ... IN for every file x every recipient
+    @Transactional
+    public List<ShareResultDto> revokeFiles(List<Long> fileIds, List<String> emails, String ownerEmail) {
+        return fileMetrics.timed("revoke-batch", () -> {
+            BatchScope scope = resolveBatch(fileIds, emails, ownerEmail);
+
+            List<ShareResultDto> results = new ArrayList<>();
+            for (Long fileId : scope.fileIds()) {
+                for (String email : scope.emails()) {
+                    String status = scope.check(fileId, email, ownerEmail);
+                    if (status == null) {
+                        status = scope.existing().contains(Map.entry(fileId, scope.userIds().get(email)))
+                                ? ShareResultDto.REVOKED : ShareResultDto.NOT_SHARED;
+                    }
+                    results.add(new ShareResultDto(fileId, email, status));
+                }
+            }
+
+            if (!scope.existing().isEmpty()) {
+                fileAccessCache.invalidate(scope.ownedIds());
+                fileShareRepository.deleteSharePairs(scope.ownedIds(), scope.userIds().values());
+            }
+            return results;
+        });
+    }
+
+    // The three lookups shared by batch share and revoke
+    private BatchScope resolveBatch(List<Long> fileIds, List<String> emails, String ownerEmail) {
+        if (fileIds == null || fileIds.isEmpty() || emails == null || emails.isEmpty()) {
+            throw new RuntimeException("At least one file and one email are required.");
+        }
+        List<Long> files = fileIds.stream().filter(Objects::nonNull).distinct().toList();
+        // Normalize emails to lowercase to prevent mismatch
+        List<String> targets = emails.stream().filter(Objects::nonNull)
+                .map(email -> email.toLowerCase().trim()).filter(email -> !email.isEmpty())
+                .distinct().toList();
+        if ((long) files.size() * targets.size() > MAX_BATCH_PAIRS) {
+            throw new RuntimeException("Too many shares in one request (max " + MAX_BATCH_PAIRS + ").");
         }
 
-        try {
-            // STEP 1: Delete all permission records (Shares) first
-            List<FileShare> shares = fileShareRepository.findByFile_Id(fileId);
-            fileShareRepository.deleteAll(shares);
+        Set<Long> owned = new HashSet<>(fileRepository.findIdsOwnedBy(files, ownerEmail));
+        Map<String, Long> userIds = userRepository.findByEmailIn(targets).stream()
+                .collect(Collectors.toMap(user -> user.getEmail().toLowerCase(), User::getId, (a, b) -> a));
 
-            // STEP 2: Delete from Database (This also deletes the BLOB data)
-            // ❌ Removed disk deletion logic since file is now inside the DB row
-            fileRepository.delete(file);
+        Set<Map.Entry<Long, Long>> existing = new HashSet<>();
+        if (!owned.isEmpty() && !userIds.isEmpty()) {
+            for (Object[] pair : fileShareRepository.findSharePairs(owned, userIds.values())) {
+                existing.add(Map.entry((Long) pair[0], (Long) pair[1]));
+            }
+        }
+        return new BatchScope(files, targets, owned, userIds, existing);
+    }
 
+    private record BatchScope(List<Long> fileIds, List<String> emails, Set<Long> ownedIds,
+                              Map<String, Long> userIds, Set<Map.Entry<Long, Long>> existing) {
+
+        // Status for a pair that cannot be shared/revoked at all, or null if it can
+        String check(Long fileId, String email, String ownerEmail) {
+            if (!ownedIds.contains(fileId)) {
+                return ShareResultDto.NOT_OWNER;
+            }
+            if (email.equalsIgnoreCase(ownerEmail)) {
+                return ShareResultDto.OWN_FILE;
+            }
+            if (!userIds.containsKey(email)) {
+                return ShareResultDto.NOT_REGISTERED;
+            }
+            return null;
+        }
+    }
+
+    // 8. DELETE (Owner Only)
+    // The file disappears at once (tombstone + shares removed + space given back), all with a
+    // handful of small statements. Rows and encrypted content are removed later by FilePurge.
+    @Transactional
+    public String deleteFile(Long fileId, String ownerEmail) {
+        return fileMetrics.timed("delete", () -> {
+            SecureFile file = fileRepository.findById(fileId)
+                    .orElseThrow(() -> new RuntimeException("File not found"));
+
+            // Security Check: Only Owner can delete
+            if (!file.getOwner().getEmail().equalsIgnoreCase(ownerEmail)) {
+                throw new RuntimeException("ACCESS DENIED: Only the owner can delete this file.");
+            }
+
+            List<SecureFile> deleted;
+            try {
+                deleted = tombstone(List.of(file));
+            } catch (DataAccessException e) {
+                throw new RuntimeException("Error deleting file: " + e.getMessage(), e);
+            }
+            if (deleted.isEmpty()) {
+                throw new RuntimeException("File not found"); // Deleted by a concurrent request
+            }
             return "File deleted successfully.";
+        });
+    }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Error deleting file: " + e.getMessage());
+    // 8b. BULK DELETE (Owner Only)
+    // Set-based: one SELECT for the caller's files, one DELETE ... IN for their shares,
+    // one UPDATE ... IN for the tombstones. Ids that are missing or not owned are reported back.
+    @Transactional
+    public BulkDeleteResultDto deleteFiles(List<Long> fileIds, String ownerEmail) {
+        return fileMetrics.timed("delete-batch", () -> {
+            if (fileIds == null || fileIds.isEmpty()) {
+                throw new RuntimeException("At least one file is required.");
+            }
+            List<Long> ids = fileIds.stream().filter(Objects::nonNull).distinct().toList();
+            if (ids.size() > MAX_BULK_DELETE) {
+                throw new RuntimeException("Too many files in one request (max " + MAX_BULK_DELETE + ").");
+            }
+
+            List<SecureFile> files = tombstone(fileRepository.findByIdInAndOwner_Email(ids, ownerEmail));
+
+            Set<Long> deleted = files.stream().map(SecureFile::getId).collect(Collectors.toSet());
+            List<Long> rejected = ids.stream().filter(id -> !deleted.contains(id)).toList();
+            return new BulkDeleteResultDto(List.copyOf(deleted), rejected);
+        });
+    }
+
+    // All files must belong to the same owner. Returns the files this call tombstoned: their rows are
+    // locked first, and any that a concurrent delete got to before are left out, so bytes and content
+    // references are released exactly once.
+    private List<SecureFile> tombstone(List<SecureFile> candidates) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        Set<Long> live = new HashSet<>(fileRepository.lockLive(candidates.stream().map(SecureFile::getId).toList()));
+        List<SecureFile> files = candidates.stream().filter(file -> live.contains(file.getId())).toList();
+        if (files.isEmpty()) {
+            return files;
+        }
+        List<Long> ids = files.stream().map(SecureFile::getId).toList();
+
+        // STEP 1: Delete all permission records (Shares) in one statement
+        fileShareRepository.deleteByFileIds(ids);
+
+        // STEP 2: Hide the files, and give the space back in the same transaction
+        fileRepository.markDeleted(ids, LocalDateTime.now());
+        fileAccessCache.invalidate(ids);
+        long released = files.stream().map(SecureFile::getPlainSize).filter(Objects::nonNull).mapToLong(Long::longValue).sum();
+        if (released > 0) {
+            userRepository.releaseBytes(files.get(0).getOwner().getId(), released);
+        }
+
+        // STEP 3: Drop this file's reference to shared (deduplicated) content. FilePurge deletes
+        // a blob only once no row and no content reference points at it any more.
+        for (SecureFile file : files) {
+            if (file.getBlobRef() != null) {
+                releaseContent(file.getBlobRef());
+            }
         }
+        return files;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.storage.StoredBlob;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+// A readable, access-checked file ready to be decrypted into a response.
+// Nothing is decrypted until writeTo() is called, and then only the requested range.
+@Getter
+public class FileStream {
+
+    private final String fileName;
+    private final String contentType;
+
+    private final StoredBlob blob;
+    private final String encryptedKey;
+    private final Integer cipherFormat;
+    private final EncryptionService encryptionService;
+    private final FileMetrics fileMetrics;
+
+    // Plaintext length, worked out on first use (see getLength)
+    private long length = -1;
+
+    public FileStream(String fileName, String contentType,
+                      StoredBlob blob, String encryptedKey, Integer cipherFormat,
+                      EncryptionService encryptionService, FileMetrics fileMetrics) {
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.blob = blob;
+        this.encryptedKey = encryptedKey;
+        this.cipherFormat = cipherFormat;
+        this.encryptionService = encryptionService;
+        this.fileMetrics = fileMetrics;
+    }
+
+    // Plaintext length, used for Content-Length and Content-Range.
+    // Costs one block decryption, so it is only computed for decrypted downloads.
+    public long getLength() throws IOException {
+        if (length < 0) {
+            try {
+                length = encryptionService.plaintextLength(blob, encryptedKey, cipherFormat);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Could not read " + fileName, e);
+            }
+        }
+        return length;
+    }
+
+    public long getEncryptedSize() throws IOException {
+        return blob.size();
+    }
+
+    // Decrypts plaintext bytes [start, end] (inclusive) straight into 'out'
+    // Timed as "download": crypto (reading + decrypting) vs. write (blocked on the client)
+    public void writeTo(OutputStream out, long start, long end) throws IOException {
+        FileMetrics.PhaseTimer timer = fileMetrics.start("download", FileMetrics.Phase.CRYPTO);
+        try (FileMetrics.Transfer transfer = fileMetrics.download()) {
+            encryptionService.decryptRange(blob, encryptedKey, cipherFormat, start, end, timer.timeWrites(out));
+            fileMetrics.decrypted(end - start + 1);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Decryption failed for " + fileName, e);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    // Copies the raw ciphertext (the .sntl file) into 'target' without decrypting it
+    public void transferEncryptedTo(WritableByteChannel target) throws IOException {
+        FileMetrics.PhaseTimer timer = fileMetrics.start("download-sntl", FileMetrics.Phase.WRITE);
+        try (FileMetrics.Transfer transfer = fileMetrics.download()) {
+            blob.transferTo(0, blob.size(), target);
+        } finally {
+            timer.stop();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.sentinel.secure_vault.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+// In-memory token buckets for login attempts, one per client IP and one per account.
+// A bucket holds up to 'capacity' attempts and refills continuously at 'per-minute'; an attempt
+// without a token is refused before any database or BCrypt work. A successful login gives the
+// account its token back, so only failed attempts wear an account's bucket down.
+// Buckets idle for 'idle-expiry' are dropped (they would be full again by then anyway).
+@Component
+public class LoginRateLimiter {
+
+    private final Cache<String, TokenBucket> ipBuckets;
+    private final Cache<String, TokenBucket> accountBuckets;
+    private final int ipCapacity;
+    private final double ipPerSecond;
+    private final int accountCapacity;
+    private final double accountPerSecond;
+    private final Counter ipLimited;
+    private final Counter accountLimited;
+
+    public LoginRateLimiter(
+            @Value("${app.security.login-rate-limit.ip-capacity:20}") int ipCapacity,
+            @Value("${app.security.login-rate-limit.ip-per-minute:10}") int ipPerMinute,
+            @Value("${app.security.login-rate-limit.account-capacity:10}") int accountCapacity,
+            @Value("${app.security.login-rate-limit.account-per-minute:5}") int accountPerMinute,
+            @Value("${app.security.login-rate-limit.idle-expiry:30m}") Duration idleExpiry,
+            @Value("${app.security.login-rate-limit.max-tracked:100000}") long maxTracked,
+            MeterRegistry meterRegistry) {
+        this.ipCapacity = ipCapacity;
+        this.ipPerSecond = ipPerMinute / 60.0;
+        this.accountCapacity = accountCapacity;
+        this.accountPerSecond = accountPerMinute / 60.0;
+        this.ipBuckets = Caffeine.newBuilder().expireAfterAccess(idleExpiry).maximumSize(maxTracked).build();
+        this.accountBuckets = Caffeine.newBuilder().expireAfterAccess(idleExpiry).maximumSize(maxTracked).build();
+
+        this.ipLimited = Counter.builder("auth.login.limited").tag("by", "ip").register(meterRegistry);
+        this.accountLimited = Counter.builder("auth.login.limited").tag("by", "account").register(meterRegistry);
+    }
+
+    // Takes one token from the client's and the account's bucket, or throws TooManyRequestsException
+    public void acquire(String clientIp, String email) {
+        TokenBucket ip = ipBuckets.get(clientIp, k -> new TokenBucket(ipCapacity, ipPerSecond));
+        long wait = ip.tryTake();
+        if (wait > 0) {
+            ipLimited.increment();
+            throw new TooManyRequestsException("Too many login attempts. Please try again later.", wait);
+        }
+
+        TokenBucket account = accountBuckets.get(accountKey(email), k -> new TokenBucket(accountCapacity, accountPerSecond));
+        wait = account.tryTake();
+        if (wait > 0) {
+            accountLimited.increment();
+            throw new TooManyRequestsException("Too many login attempts for this account. Please try again later.", wait);
+        }
+    }
+
+    // After a successful login: the attempt does not count against the account
+    public void succeeded(String email) {
+        TokenBucket account = accountBuckets.getIfPresent(accountKey(email));
+        if (account != null) {
+            account.giveBack();
+        }
+    }
+
+    private static String accountKey(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Nothing blocks while the monitor is held, so this is cheap (and harmless for virtual threads)
+    static final class TokenBucket {
+
+        private final int capacity;
+        private final double perSecond;
+        private double tokens;
+        private long updatedAt = System.nanoTime();
+
+        TokenBucket(int capacity, double perSecond) {
+            this.capacity = capacity;
+            this.perSecond = perSecond;
+            this.tokens = capacity;
+        }
+
+        // 0 when a token was taken, otherwise the seconds until the next one is available
+        synchronized long tryTake() {
+            refill();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / perSecond));
+        }
+
+        synchronized void giveBack() {
+            refill();
+            tokens = Math.min(capacity, tokens + 1);
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - updatedAt) / 1e9 * perSecond);
+            updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.model.OutboundMail;
+import com.sentinel.secure_vault.repository.OutboundMailRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// Entry point for sending e-mail: stores the message and returns immediately.
+// Called inside the caller's transaction, the mail is only sent if that transaction commits.
+@Service
+public class MailQueue {
+
+    @Autowired
+    private OutboundMailRepository outboundMailRepository;
+
+    // ⚡ Must match the sender verified with the SMTP provider (Brevo: Senders & IP)
+    @Value("${app.mail.from}")
+    private String from;
+
+    public void enqueue(String to, String subject, String text) {
+        OutboundMail mail = new OutboundMail();
+        mail.setSender(from);
+        mail.setRecipient(to);
+        mail.setSubject(subject);
+        mail.setBody(text);
+        mail.setStatus(OutboundMail.Status.PENDING);
+        outboundMailRepository.save(mail);
+    }
+}
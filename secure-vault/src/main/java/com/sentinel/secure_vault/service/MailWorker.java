@@ -0,0 +1,232 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.model.OutboundMail;
+import com.sentinel.secure_vault.model.OutboundMail.Status;
+import com.sentinel.secure_vault.repository.OutboundMailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Delivers the outbound_mail queue (see MailQueue).
+// Each run claims a batch of due mails, splits it across a small worker pool, and every worker
+// sends its share over one SMTP connection. Failures are retried with exponential backoff
+// (plus jitter); after the last attempt a mail is marked DEAD and kept for inspection.
+// The body of a SENT or DEAD mail is cleared: it may hold a live password reset link.
+@Slf4j
+@Component
+public class MailWorker {
+
+    @Autowired
+    private OutboundMailRepository outboundMailRepository;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Value("${app.mail.queue.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.queue.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.mail.queue.initial-backoff:30s}")
+    private Duration initialBackoff;
+
+    @Value("${app.mail.queue.max-backoff:1h}")
+    private Duration maxBackoff;
+
+    // How long a claimed batch may take before another worker may pick it up again
+    @Value("${app.mail.queue.claim-timeout:5m}")
+    private Duration claimTimeout;
+
+    @Value("${app.mail.queue.retention:7d}")
+    private Duration retention;
+
+    private final int workers;
+    private final ExecutorService pool;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+    private final Timer deliveryLatency;
+    private final Counter sent;
+    private final Counter failed;
+
+    public MailWorker(@Value("${app.mail.queue.workers:4}") int workers, MeterRegistry meterRegistry) {
+        this.workers = workers;
+        // Platform threads even in virtual-thread mode: Jakarta Mail holds monitors around its socket I/O,
+        // which would pin the carriers. Senders never wait on this pool, they only insert a row.
+        this.pool = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("mail-worker-", 0).factory());
+
+        Gauge.builder("mail.queue.depth", pending, AtomicLong::get)
+                .description("Mails waiting to be sent")
+                .register(meterRegistry);
+        Gauge.builder("mail.queue.dead", dead, AtomicLong::get)
+                .description("Mails that were given up on")
+                .register(meterRegistry);
+        // Time from enqueue to successful delivery
+        this.deliveryLatency = Timer.builder("mail.delivery.latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.sent = Counter.builder("mail.sent").register(meterRegistry);
+        this.failed = Counter.builder("mail.failed").description("Failed attempts (including retried ones)").register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.mail.queue.poll-interval:2s}",
+            fixedDelayString = "${app.mail.queue.poll-interval:2s}")
+    public void deliverDue() {
+        LocalDateTime now = LocalDateTime.now();
+        outboundMailRepository.releaseExpiredClaims(Status.SENDING, Status.PENDING, now);
+
+        // Keep going while full batches come back, so a backlog drains without waiting for the next poll
+        List<OutboundMail> batch;
+        do {
+            batch = claimBatch(now);
+            if (!batch.isEmpty()) {
+                deliver(batch);
+            }
+            now = LocalDateTime.now();
+        } while (batch.size() == batchSize);
+
+        pending.set(outboundMailRepository.countByStatus(Status.PENDING));
+        dead.set(outboundMailRepository.countByStatus(Status.DEAD));
+    }
+
+    @Scheduled(initialDelayString = "1h", fixedDelayString = "1h")
+    public void removeOldSentMail() {
+        outboundMailRepository.deleteSentBefore(Status.SENT, LocalDateTime.now().minus(retention));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private List<OutboundMail> claimBatch(LocalDateTime now) {
+        List<Long> due = outboundMailRepository.findDueIds(Status.PENDING, now, PageRequest.of(0, batchSize));
+        if (due.isEmpty()) {
+            return List.of();
+        }
+        String token = UUID.randomUUID().toString();
+        outboundMailRepository.claim(due, Status.PENDING, Status.SENDING, token, now.plus(claimTimeout));
+        return outboundMailRepository.findByClaimToken(token);
+    }
+
+    // Sends the batch on the worker pool and records every outcome in one saveAll
+    private void deliver(List<OutboundMail> batch) {
+        List<Callable<Void>> jobs = new ArrayList<>();
+        int perWorker = (batch.size() + workers - 1) / workers;
+        for (int from = 0; from < batch.size(); from += perWorker) {
+            List<OutboundMail> share = batch.subList(from, Math.min(from + perWorker, batch.size()));
+            jobs.add(() -> {
+                send(share);
+                return null;
+            });
+        }
+
+        try {
+            pool.invokeAll(jobs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Unfinished rows stay claimed and become due again after claim-timeout
+            return;
+        }
+        outboundMailRepository.saveAll(batch);
+    }
+
+    private void send(List<OutboundMail> mails) {
+        SimpleMailMessage[] messages = mails.stream().map(MailWorker::toMessage).toArray(SimpleMailMessage[]::new);
+
+        // One connection for the whole list; a MailSendException says which messages failed
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        try {
+            mailSender.send(messages);
+        } catch (MailSendException e) {
+            failures.putAll(e.getFailedMessages());
+            if (failures.isEmpty()) {
+                for (SimpleMailMessage message : messages) {
+                    failures.put(message, e);
+                }
+            }
+        } catch (MailException e) {
+            for (SimpleMailMessage message : messages) {
+                failures.put(message, e);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < mails.size(); i++) {
+            OutboundMail mail = mails.get(i);
+            mail.setAttempts(mail.getAttempts() + 1);
+            mail.setClaimToken(null);
+            mail.setLockedUntil(null);
+
+            Exception failure = failures.get(messages[i]);
+            if (failure == null) {
+                mail.setStatus(Status.SENT);
+                mail.setSentAt(now);
+                mail.setLastError(null);
+                mail.setBody(null);
+                sent.increment();
+                deliveryLatency.record(Duration.between(mail.getCreatedAt(), now));
+            } else {
+                failed.increment();
+                mail.setLastError(truncate(failure.getMessage()));
+                if (mail.getAttempts() >= maxAttempts) {
+                    mail.setStatus(Status.DEAD);
+                    mail.setBody(null);
+                    log.warn("Giving up on mail {} to {}: {}", mail.getId(), mail.getRecipient(), failure.getMessage());
+                } else {
+                    mail.setStatus(Status.PENDING);
+                    mail.setNextAttemptAt(now.plus(backoff(mail.getAttempts())));
+                }
+            }
+        }
+    }
+
+    // initial * 2^(attempts-1), capped, with up to 20% jitter so failed batches don't retry in lockstep
+    private Duration backoff(int attempts) {
+        long millis = initialBackoff.toMillis() << Math.min(attempts - 1, 20);
+        millis = Math.min(millis, maxBackoff.toMillis());
+        return Duration.ofMillis(millis + ThreadLocalRandom.current().nextLong(millis / 5 + 1));
+    }
+
+    private static SimpleMailMessage toMessage(OutboundMail mail) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(mail.getSender());
+        message.setTo(mail.getRecipient());
+        message.setSubject(mail.getSubject());
+        message.setText(mail.getBody());
+        return message;
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
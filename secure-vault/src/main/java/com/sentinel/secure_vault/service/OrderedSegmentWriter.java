@@ -0,0 +1,89 @@
+package com.sentinel.secure_vault.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+// Runs per-segment crypto jobs and writes their results to 'out' in submission order.
+// With an executor, up to 'window' jobs run at once on other cores while the caller keeps
+// reading input; without one (small files) each job runs inline on the caller's thread.
+class OrderedSegmentWriter {
+
+    private final ExecutorService executor;
+    private final int window;
+    private final OutputStream out;
+    private final ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private long written;
+
+    OrderedSegmentWriter(ExecutorService executor, int window, OutputStream out) {
+        this.executor = executor;
+        this.window = window;
+        this.out = out;
+    }
+
+    void submit(Callable<byte[]> job, boolean parallel) throws IOException {
+        if (executor == null || !parallel) {
+            // Keep ordering: anything already running has to be written first
+            drain();
+            write(call(job));
+            return;
+        }
+        if (inFlight.size() >= window) {
+            write(await(inFlight.poll()));
+        }
+        // FutureTask keeps the job's own exception (ForkJoinPool.submit would wrap checked ones)
+        FutureTask<byte[]> task = new FutureTask<>(job);
+        executor.execute(task);
+        inFlight.add(task);
+    }
+
+    // Waits for every job and writes the remaining results. Returns the total bytes written.
+    long drain() throws IOException {
+        while (!inFlight.isEmpty()) {
+            write(await(inFlight.poll()));
+        }
+        return written;
+    }
+
+    // Stops waiting for outstanding jobs after a failure
+    void cancel() {
+        inFlight.forEach(f -> f.cancel(true));
+        inFlight.clear();
+    }
+
+    private void write(byte[] result) throws IOException {
+        out.write(result);
+        written += result.length;
+    }
+
+    private byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new InterruptedIOException("Interrupted while waiting for a crypto segment");
+        } catch (ExecutionException e) {
+            cancel();
+            throw asIOException(e.getCause());
+        }
+    }
+
+    private static byte[] call(Callable<byte[]> job) throws IOException {
+        try {
+            return job.call();
+        } catch (Exception e) {
+            throw asIOException(e);
+        }
+    }
+
+    private static IOException asIOException(Throwable e) {
+        return e instanceof IOException io ? io : new IOException("Segment crypto failed", e);
+    }
+}
@@ -0,0 +1,130 @@
+package com.sentinel.secure_vault.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// All BCrypt work (login checks, hashing new passwords) runs on this small dedicated pool, so a burst
+// of logins can use at most 'threads' cores and downloads keep the rest.
+// Admission is bounded: once 'threads + queue-capacity' jobs are waiting or running, further callers
+// get TooManyRequestsException at once instead of queueing behind a storm. Waiting jobs are ordered
+// by priority (logins first), then by arrival.
+@Service
+public class PasswordHashingService {
+
+    public enum Priority {
+        LOGIN,          // Someone is waiting at the login form
+        ACCOUNT_UPDATE  // Registration and password reset; rarer, and can wait a little longer
+    }
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private final ThreadPoolExecutor pool;
+    private final Semaphore admission;
+    private final AtomicLong arrivals = new AtomicLong();
+    private final Counter rejected;
+
+    public PasswordHashingService(
+            @Value("${app.security.password-hashing.threads:0}") int threads,
+            @Value("${app.security.password-hashing.queue-capacity:64}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        // 0 = half the cores (at least one)
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), Thread.ofPlatform().name("password-hash-", 0).factory());
+        this.admission = new Semaphore(poolSize + queueCapacity);
+
+        Gauge.builder("auth.hashing.queue", pool, p -> p.getQueue().size())
+                .description("Password hashing jobs waiting for a thread")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("auth.hashing.rejected")
+                .description("Password hashing jobs turned away because the queue was full")
+                .register(meterRegistry);
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword, Priority priority) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword), priority);
+    }
+
+    public String encode(String rawPassword, Priority priority) {
+        return run(() -> passwordEncoder.encode(rawPassword), priority);
+    }
+
+    // True if the hash uses another algorithm or a lower cost than currently configured.
+    // Cheap: only the hash's prefix/parameters are inspected.
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private <T> T run(Callable<T> work, Priority priority) {
+        if (!admission.tryAcquire()) {
+            rejected.increment();
+            throw new TooManyRequestsException("The server is busy. Please try again in a moment.", 1);
+        }
+
+        Job<T> job = new Job<>(work, priority, arrivals.getAndIncrement());
+        try {
+            pool.execute(job);
+        } catch (RuntimeException e) {
+            admission.release();
+            throw e;
+        }
+
+        try {
+            return job.get();
+        } catch (InterruptedException e) {
+            job.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while checking the password");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private final class Job<T> extends FutureTask<T> implements Comparable<Job<?>> {
+
+        private final Priority priority;
+        private final long arrival;
+
+        Job(Callable<T> work, Priority priority, long arrival) {
+            super(work);
+            this.priority = priority;
+            this.arrival = arrival;
+        }
+
+        @Override
+        protected void done() {
+            // Runs once per job, whether it finished, failed or was cancelled while queued
+            admission.release();
+        }
+
+        @Override
+        public int compareTo(Job<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(arrival, other.arrival);
+        }
+    }
+}
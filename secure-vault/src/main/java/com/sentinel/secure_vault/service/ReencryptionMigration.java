@@ -0,0 +1,127 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.storage.BlobStore;
+import com.sentinel.secure_vault.storage.PendingBlob;
+import com.sentinel.secure_vault.storage.StoredBlob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Re-encrypts files stored as bare AES/ECB into .sntl containers (AES-256-GCM segments) with a new key.
+// Runs in small batches in the background after LegacyBlobMigration has moved their content
+// into the BlobStore. Plaintext is streamed from the old blob into the new one and never touches disk.
+// The old blob is not deleted here: downloads opened before the switch may still read it, so it is
+// recorded in retired_blobs and FilePurge removes it after a grace period.
+@Slf4j
+@Component
+public class ReencryptionMigration {
+
+    private static final int BATCH_SIZE = 10;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @Autowired
+    private FileAccessCache fileAccessCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // New uploads are always written as .sntl, so once nothing is left this stops querying
+    private volatile boolean finished;
+
+    @Scheduled(initialDelayString = "${app.storage.migration.initial-delay:30s}",
+            fixedDelayString = "${app.storage.migration.interval:1m}")
+    public void migrateBatch() {
+        if (finished) {
+            return;
+        }
+
+        // Rows still waiting for LegacyBlobMigration (blob_ref IS NULL) are picked up on a later run
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, blob_ref, encrypted_key FROM secure_files " +
+                        "WHERE cipher_format IS NULL AND blob_ref IS NOT NULL AND deleted_at IS NULL LIMIT " + BATCH_SIZE);
+
+        if (rows.isEmpty()) {
+            Integer waiting = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM secure_files WHERE cipher_format IS NULL AND deleted_at IS NULL", Integer.class);
+            finished = waiting == null || waiting == 0;
+            return;
+        }
+
+        for (Map<String, Object> row : rows) {
+            Long id = ((Number) row.get("id")).longValue();
+            try {
+                reencrypt(id, (String) row.get("blob_ref"), (String) row.get("encrypted_key"));
+            } catch (Exception e) {
+                log.warn("Re-encryption failed for file {}: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    private void reencrypt(Long id, String oldRef, String oldKey) throws Exception {
+        StoredBlob oldBlob = blobStore.open(oldRef);
+
+        if (!encryptionService.isLegacy(oldBlob)) {
+            // Already a container; only the bookkeeping is missing
+            jdbcTemplate.update("UPDATE secure_files SET cipher_format = ? WHERE id = ? AND blob_ref = ?",
+                    SntlHeader.VERSION_1, id, oldRef);
+            return;
+        }
+
+        SecretKey newKey = encryptionService.generateKey();
+        String newRef;
+        long newSize;
+        try (PendingBlob pending = blobStore.create();
+             InputStream plain = encryptionService.openLegacyPlaintext(oldBlob, oldKey)) {
+            newSize = encryptionService.encrypt(plain, pending.outputStream(), newKey);
+            newRef = pending.commit();
+        }
+
+        // Swap only if the row still points at the blob we converted (it may have been deleted meanwhile),
+        // and retire the old blob in the same transaction so it is never forgotten
+        String encodedKey = encryptionService.encodeKey(newKey);
+        Boolean swapped = transactionTemplate.execute(status -> {
+            int updated = jdbcTemplate.update(
+                    "UPDATE secure_files SET blob_ref = ?, encrypted_key = ?, encrypted_size = ?, cipher_format = ? " +
+                            "WHERE id = ? AND blob_ref = ?",
+                    newRef, encodedKey, newSize, SntlHeader.VERSION_1, id, oldRef);
+            if (updated == 1) {
+                jdbcTemplate.update("INSERT INTO retired_blobs (blob_ref, retired_at) VALUES (?, ?)",
+                        oldRef, LocalDateTime.now());
+            }
+            return updated == 1;
+        });
+
+        if (Boolean.TRUE.equals(swapped)) {
+            // Cached downloads must pick up the new blob and key
+            fileAccessCache.invalidate(List.of(id));
+        } else {
+            deleteQuietly(newRef); // Nothing ever pointed at it
+        }
+    }
+
+    private void deleteQuietly(String ref) {
+        try {
+            blobStore.delete(ref);
+        } catch (IOException e) {
+            log.warn("Could not delete blob {}: {}", ref, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.util.AESUtil;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ExecutorService;
+
+// Writes a .sntl container (see SntlHeader) to 'out' as plaintext is written to it.
+// A full segment is only sealed once more data arrives, because the last segment has to be
+// sealed with the "last" flag; finish() seals it.
+// Up to 'parallelThreshold' bytes, segments are sealed inline with reused buffers. Past that
+// (large files), segments are sealed on the crypto executor and written back in order, with a
+// bounded number in flight, so memory stays bounded while all cores are used.
+// A stream can also write one part of a container (chunked uploads): it then starts at a given
+// segment index, only the first part writes the header, and only the final part seals its last
+// segment as "last". Concatenating the parts in order gives the complete container.
+// finish()/close() do NOT close 'out', so the caller can still commit or flush it.
+// abandon() gives up on a failed stream without sealing anything more.
+public class SntlEncryptingOutputStream extends OutputStream {
+
+    static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    private final OutputStream out;
+    private final SecretKey key;
+    private final SntlHeader header;
+    private final OrderedSegmentWriter writer;
+    private final long parallelThreshold;
+    private final long firstSegment;
+    private final boolean finalPart;
+
+    private byte[] segment;
+    private final byte[] sealed;
+    private int buffered;
+    private long segmentIndex;
+    private long written;
+    private boolean finished;
+
+    public SntlEncryptingOutputStream(OutputStream out, SecretKey key, SntlHeader header,
+                                      ExecutorService executor, int window, long parallelThreshold) throws IOException {
+        this(out, key, header, 0, true, executor, window, parallelThreshold);
+    }
+
+    // Writes the segments of one part, starting at segment 'firstSegment' (the header too if that is 0).
+    // Every part except the final one must end on a segment boundary.
+    public SntlEncryptingOutputStream(OutputStream out, SecretKey key, SntlHeader header,
+                                      long firstSegment, boolean finalPart,
+                                      ExecutorService executor, int window, long parallelThreshold) throws IOException {
+        this.out = out;
+        this.key = key;
+        this.header = header;
+        this.writer = new OrderedSegmentWriter(executor, window, out);
+        this.parallelThreshold = executor == null ? Long.MAX_VALUE : parallelThreshold;
+        this.segment = new byte[header.getSegmentSize()];
+        this.sealed = new byte[header.getSegmentSize() + SntlHeader.TAG_LENGTH];
+        this.firstSegment = firstSegment;
+        this.finalPart = finalPart;
+        this.segmentIndex = firstSegment;
+
+        if (firstSegment == 0) {
+            out.write(header.bytes());
+            written = SntlHeader.LENGTH;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Stream already finished");
+        }
+        while (len > 0) {
+            if (buffered == segment.length) {
+                // More data is coming, so the buffered segment is not the last one
+                seal(false);
+            }
+            int n = Math.min(len, segment.length - buffered);
+            System.arraycopy(b, off, segment, buffered, n);
+            buffered += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    // Seals the last segment (possibly empty). Returns the total container size.
+    public long finish() throws IOException {
+        if (!finished) {
+            if (!finalPart && buffered != segment.length) {
+                throw new IOException("A part must end on a segment boundary");
+            }
+            seal(finalPart);
+            written += writer.drain();
+            finished = true;
+        }
+        return written;
+    }
+
+    // Stops the stream without sealing the buffered data (close() then only releases the workers)
+    public void abandon() {
+        finished = true;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            writer.cancel();
+        }
+    }
+
+    private void seal(boolean last) throws IOException {
+        long index = segmentIndex++;
+        int length = buffered;
+        buffered = 0;
+
+        if ((index - firstSegment) * header.getSegmentSize() >= parallelThreshold) {
+            // Hand this buffer to the job and carry on filling a new one
+            byte[] plain = segment;
+            segment = new byte[header.getSegmentSize()];
+            writer.submit(() -> {
+                byte[] result = new byte[length + SntlHeader.TAG_LENGTH];
+                sealSegment(plain, length, index, last, result);
+                return result;
+            }, true);
+            return;
+        }
+
+        int n = sealSegment(segment, length, index, last, sealed);
+        out.write(sealed, 0, n);
+        written += n;
+    }
+
+    private int sealSegment(byte[] plain, int length, long index, boolean last, byte[] target) throws IOException {
+        Cipher cipher = null;
+        try {
+            cipher = AESUtil.borrow(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, key,
+                    new GCMParameterSpec(SntlHeader.TAG_LENGTH * 8, header.iv(index, last)));
+            cipher.updateAAD(header.aad());
+            return cipher.doFinal(plain, 0, length, target, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not encrypt segment " + index, e);
+        } finally {
+            AESUtil.release(cipher);
+        }
+    }
+}
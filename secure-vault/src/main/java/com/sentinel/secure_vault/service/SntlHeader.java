@@ -0,0 +1,125 @@
+package com.sentinel.secure_vault.service;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+// Header of a version 1 .sntl container.
+//
+//   offset size
+//   0      4    magic "SNTL"
+//   4      1    version (1)
+//   5      1    algorithm (1 = AES-256-GCM, 128-bit tags)
+//   6      2    reserved (0)
+//   8      4    segment size: plaintext bytes per segment (big-endian)
+//   12     7    nonce prefix (random per file)
+//   19     1    reserved (0)
+//
+// The header is followed by segments of (segment size + 16) bytes; only the last one may be shorter.
+// Each segment is sealed on its own with AES-GCM, using
+//   IV  = nonce prefix (7) | segment index (4, big-endian) | 1 if last segment else 0 (1)
+//   AAD = the 20 header bytes
+// so any segment can be decrypted and verified without the others, segments cannot be reordered,
+// and dropping trailing segments is detected because the new last segment was not sealed as last.
+public final class SntlHeader {
+
+    public static final int LENGTH = 20;
+    public static final int TAG_LENGTH = 16;
+    public static final byte VERSION_1 = 1;
+    public static final byte ALGORITHM_AES_256_GCM = 1;
+
+    private static final byte[] MAGIC = {'S', 'N', 'T', 'L'};
+    private static final int NONCE_PREFIX_LENGTH = 7;
+    private static final int IV_LENGTH = 12;
+
+    private final int segmentSize;
+    private final byte[] noncePrefix;
+    private final byte[] bytes;
+
+    private SntlHeader(int segmentSize, byte[] noncePrefix, byte[] bytes) {
+        this.segmentSize = segmentSize;
+        this.noncePrefix = noncePrefix;
+        this.bytes = bytes;
+    }
+
+    public static SntlHeader create(int segmentSize, SecureRandom random) {
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        random.nextBytes(noncePrefix);
+
+        ByteBuffer header = ByteBuffer.allocate(LENGTH)
+                .put(MAGIC)
+                .put(VERSION_1)
+                .put(ALGORITHM_AES_256_GCM)
+                .putShort((short) 0)
+                .putInt(segmentSize)
+                .put(noncePrefix)
+                .put((byte) 0);
+        return new SntlHeader(segmentSize, noncePrefix, header.array());
+    }
+
+    // True if these bytes start with the .sntl magic. Files written before the container
+    // existed are bare AES/ECB ciphertext and are read through the legacy path instead.
+    public static boolean hasMagic(byte[] prefix) {
+        return prefix.length >= MAGIC.length && Arrays.equals(prefix, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    public static SntlHeader parse(byte[] bytes) {
+        if (bytes.length < LENGTH || !hasMagic(bytes)) {
+            throw new IllegalStateException("Not a .sntl container");
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes, 0, LENGTH);
+        header.position(MAGIC.length);
+        byte version = header.get();
+        byte algorithm = header.get();
+        if (version != VERSION_1 || algorithm != ALGORITHM_AES_256_GCM) {
+            throw new IllegalStateException("Unsupported .sntl version " + version + " / algorithm " + algorithm);
+        }
+        header.getShort();
+        int segmentSize = header.getInt();
+        if (segmentSize <= 0) {
+            throw new IllegalStateException("Invalid .sntl segment size " + segmentSize);
+        }
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        header.get(noncePrefix);
+        return new SntlHeader(segmentSize, noncePrefix, Arrays.copyOf(bytes, LENGTH));
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    // The encoded header; also the AAD of every segment
+    public byte[] bytes() {
+        return bytes.clone();
+    }
+
+    byte[] aad() {
+        return bytes;
+    }
+
+    public byte[] iv(long segmentIndex, boolean last) {
+        return ByteBuffer.allocate(IV_LENGTH)
+                .put(noncePrefix)
+                .putInt((int) segmentIndex)
+                .put((byte) (last ? 1 : 0))
+                .array();
+    }
+
+    // Where segment 'index' starts in the container
+    public long segmentOffset(long index) {
+        return LENGTH + index * (segmentSize + (long) TAG_LENGTH);
+    }
+
+    public long segmentCount(long containerSize) {
+        long body = containerSize - LENGTH;
+        if (body < TAG_LENGTH) {
+            throw new IllegalStateException("Encrypted content is corrupted (size " + containerSize + ")");
+        }
+        long sealed = segmentSize + (long) TAG_LENGTH;
+        return (body + sealed - 1) / sealed;
+    }
+
+    public long plaintextLength(long containerSize) {
+        return containerSize - LENGTH - segmentCount(containerSize) * TAG_LENGTH;
+    }
+}
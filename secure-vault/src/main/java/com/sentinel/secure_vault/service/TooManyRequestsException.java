@@ -0,0 +1,17 @@
+package com.sentinel.secure_vault.service;
+
+// The caller is over a rate limit or the server is too busy to take the request right now.
+// Controllers answer it with 429 and a Retry-After header.
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,54 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.model.UploadSession;
+import com.sentinel.secure_vault.repository.UploadSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Removes chunked uploads that nobody has touched for app.upload.session-ttl:
+// their encrypted parts are deleted and the reserved quota is given back.
+@Slf4j
+@Component
+public class UploadSessionCleanup {
+
+    @Autowired
+    private UploadSessionRepository sessionRepository;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Value("${app.upload.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    @Scheduled(initialDelayString = "${app.upload.cleanup-interval:15m}",
+            fixedDelayString = "${app.upload.cleanup-interval:15m}")
+    public void removeAbandonedSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(sessionTtl);
+
+        List<UploadSession> expired;
+        int removed = 0;
+        do {
+            expired = sessionRepository.findTop50ByLastActivityBefore(cutoff);
+            for (UploadSession session : expired) {
+                try {
+                    chunkedUploadService.abort(session);
+                    removed++;
+                } catch (RuntimeException e) {
+                    log.warn("Could not remove upload {}: {}", session.getId(), e.getMessage());
+                    return; // Try again on the next run rather than spinning on the same rows
+                }
+            }
+        } while (!expired.isEmpty());
+
+        if (removed > 0) {
+            log.info("Removed {} abandoned upload(s)", removed);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.storage.BlobStore;
+import com.sentinel.secure_vault.storage.StoredBlob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+// Records sizes for files uploaded before sizes were tracked and adds them to their owner's usage counter.
+// Only the last cipher block of each file is decrypted, so this is cheap even for large files.
+@Slf4j
+@Component
+public class UsageBackfill {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    // New uploads always record their size, so once nothing is left this stops querying
+    private volatile boolean finished;
+
+    @Scheduled(initialDelayString = "${app.storage.migration.initial-delay:30s}",
+            fixedDelayString = "${app.storage.migration.interval:1m}")
+    public void backfillBatch() {
+        if (finished) {
+            return;
+        }
+
+        // Rows still waiting for LegacyBlobMigration (blob_ref IS NULL) are picked up on a later run
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, owner_id, blob_ref, encrypted_key, cipher_format FROM secure_files " +
+                        "WHERE plain_size IS NULL AND blob_ref IS NOT NULL AND deleted_at IS NULL LIMIT " + BATCH_SIZE);
+
+        if (rows.isEmpty()) {
+            Integer waiting = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM secure_files WHERE plain_size IS NULL AND deleted_at IS NULL", Integer.class);
+            finished = waiting == null || waiting == 0;
+            return;
+        }
+
+        for (Map<String, Object> row : rows) {
+            Long id = ((Number) row.get("id")).longValue();
+            try {
+                StoredBlob blob = blobStore.open((String) row.get("blob_ref"));
+                Number format = (Number) row.get("cipher_format");
+                long plainSize = encryptionService.plaintextLength(blob, (String) row.get("encrypted_key"),
+                        format == null ? null : format.intValue());
+                record(id, ((Number) row.get("owner_id")).longValue(), plainSize, blob.size());
+            } catch (Exception e) {
+                log.warn("Size backfill failed for file {}: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    // Sizes and usage change together; the IS NULL guards make a second run (or a file deleted meanwhile) a no-op
+    private void record(Long fileId, long ownerId, long plainSize, long encryptedSize) {
+        transactionTemplate.executeWithoutResult(status -> {
+            int updated = jdbcTemplate.update(
+                    "UPDATE secure_files SET plain_size = ?, encrypted_size = ? " +
+                            "WHERE id = ? AND plain_size IS NULL AND deleted_at IS NULL",
+                    plainSize, encryptedSize, fileId);
+            if (updated == 1) {
+                jdbcTemplate.update("UPDATE users SET used_bytes = used_bytes + ? WHERE id = ?", plainSize, ownerId);
+            }
+        });
+    }
+}
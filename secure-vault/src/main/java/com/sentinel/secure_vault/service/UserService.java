@@ -3,13 +3,14 @@ package com.sentinel.secure_vault.service;
 import com.sentinel.secure_vault.dto.UserRegistrationDto;
 import com.sentinel.secure_vault.model.User;
 import com.sentinel.secure_vault.repository.UserRepository;
+import com.sentinel.secure_vault.service.PasswordHashingService.Priority;
 import com.sentinel.secure_vault.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.SimpleMailMessage;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Service // Tells Spring: "This holds business logic"
@@ -18,13 +19,20 @@ public class UserService {
     @Autowired // Dependency Injection: Spring automatically gives us the Repository
     private UserRepository userRepository;
     @Autowired
-    private PasswordEncoder passwordEncoder; // Inject the scrambler
+    private PasswordHashingService passwordHashing; // BCrypt, on its own bounded pool
     @Autowired
-    private JavaMailSender mailSender;
+    private LoginRateLimiter loginRateLimiter;
+    @Autowired
+    private MailQueue mailQueue; // Mail is queued and sent in the background by MailWorker
+    @Autowired
+    private CustomUserDetailsService userDetailsService; // Holds the principal cache
 
     @Value("${app.frontend.url}")
     private String frontendUrl;
 
+    @Value("${app.security.password-reset.token-ttl:1h}")
+    private Duration resetTokenTtl;
+
     public String registerUser(UserRegistrationDto request) {
         if (userRepository.findByEmail(request.getEmail()).isPresent()) {
             return "Error: Email already taken!";
@@ -36,7 +44,7 @@ public class UserService {
 
         // OLD: newUser.setPassword(request.getPassword());
         // NEW: Hash it!
-        newUser.setPassword(passwordEncoder.encode(request.getPassword()));
+        newUser.setPassword(passwordHashing.encode(request.getPassword(), Priority.ACCOUNT_UPDATE));
 
         userRepository.save(newUser);
         return "User registered successfully!";
@@ -46,20 +54,42 @@ public class UserService {
     @Autowired
     private JwtUtil jwtUtil; // Inject our new tool
 
-    public String login(String email, String password) {
+    public String login(String email, String password, String clientIp) {
+        // Over the limit -> 429 before any DB or BCrypt work
+        loginRateLimiter.acquire(clientIp, email);
+
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         // OLD: if (!user.getPassword().equals(password))
         // NEW: Check if raw password matches the Hash in DB
-        if (!passwordEncoder.matches(password, user.getPassword())) {
+        if (!passwordHashing.matches(password, user.getPassword(), Priority.LOGIN)) {
             throw new RuntimeException("Invalid Credentials");
         }
+        loginRateLimiter.succeeded(email);
+
+        // Stored with an older algorithm or cost: replace it while the plain password is at hand
+        if (passwordHashing.needsRehash(user.getPassword())) {
+            upgradePasswordHash(user, password);
+        }
 
         return jwtUtil.generateToken(email);
     }
 
+    private void upgradePasswordHash(User user, String password) {
+        try {
+            String newHash = passwordHashing.encode(password, Priority.ACCOUNT_UPDATE);
+            if (userRepository.replacePasswordHash(user.getId(), user.getPassword(), newHash) == 1) {
+                userDetailsService.evict(user.getEmail());
+            }
+        } catch (TooManyRequestsException e) {
+            // Hashing pool is busy; the login still succeeds and the hash is upgraded at a later login
+        }
+    }
+
     // 1. FORGOT PASSWORD (Generate Token & Email)
+    // The token and the queued mail are committed together; the request never waits for SMTP
+    @Transactional
     public String forgotPassword(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found with this email"));
@@ -67,22 +97,14 @@ public class UserService {
         // Generate Random Token
         String token = UUID.randomUUID().toString();
         user.setResetToken(token);
+        user.setResetTokenExpiresAt(LocalDateTime.now().plus(resetTokenTtl));
         userRepository.save(user);
 
         // Send Email
         String resetLink = frontendUrl + "/reset-password?token=" + token;
 
-        SimpleMailMessage message = new SimpleMailMessage();
-
-        // ⚡ CRITICAL FIX: Explicitly set the FROM address
-        // This MUST match the email you verified in Brevo (Senders & IP)
-        message.setFrom("moviesera851@gmail.com");
-
-        message.setTo(email);
-        message.setSubject("Secure Vault - Password Reset");
-        message.setText("Click the link below to reset your password:\n\n" + resetLink);
-
-        mailSender.send(message);
+        mailQueue.enqueue(email, "Secure Vault - Password Reset",
+                "Click the link below to reset your password:\n\n" + resetLink);
 
         return "Reset link sent to your email.";
     }
@@ -91,14 +113,21 @@ public class UserService {
     public String resetPassword(String token, String newPassword) {
         User user = userRepository.findByResetToken(token) // We need to add this method to Repo
                 .orElseThrow(() -> new RuntimeException("Invalid or Expired Token"));
+        if (user.getResetTokenExpiresAt() == null || user.getResetTokenExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new RuntimeException("Invalid or Expired Token");
+        }
 
         // Hash the new password (SECURE FORMAT)
-        user.setPassword(passwordEncoder.encode(newPassword));
+        user.setPassword(passwordHashing.encode(newPassword, Priority.ACCOUNT_UPDATE));
 
         // Clear the token so it can't be used again
         user.setResetToken(null);
+        user.setResetTokenExpiresAt(null);
         userRepository.save(user);
 
+        // Drop the cached principal so the old password hash is not used again
+        userDetailsService.evict(user.getEmail());
+
         return "Password changed successfully.";
     }
 
@@ -0,0 +1,19 @@
+package com.sentinel.secure_vault.storage;
+
+import java.io.IOException;
+
+// Where encrypted file content lives. The database only keeps the reference
+// returned by PendingBlob.commit(), so metadata queries never touch content.
+public interface BlobStore {
+
+    // Starts writing a new blob. Nothing is visible until commit() is called.
+    PendingBlob create() throws IOException;
+
+    // Opens a committed blob for random access and channel transfers
+    StoredBlob open(String ref) throws IOException;
+
+    boolean exists(String ref);
+
+    // Removes a blob. Deleting a missing blob is not an error.
+    void delete(String ref) throws IOException;
+}
@@ -0,0 +1,97 @@
+package com.sentinel.secure_vault.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+// Moves encrypted content of rows written before the BlobStore existed
+// out of the secure_files.file_data LONGBLOB column and into the BlobStore.
+// Runs in small batches in the background; once every row has a blob_ref it becomes a single cheap query.
+@Slf4j
+@Component
+public class LegacyBlobMigration {
+
+    private static final int BATCH_SIZE = 20;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    // New rows never use file_data, so once it is empty there is nothing left to do
+    private volatile boolean finished;
+
+    @Scheduled(initialDelayString = "${app.storage.migration.initial-delay:30s}",
+            fixedDelayString = "${app.storage.migration.interval:1m}")
+    public void migrateBatch() {
+        if (finished) {
+            return;
+        }
+
+        List<Long> ids;
+        try {
+            ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM secure_files WHERE blob_ref IS NULL AND file_data IS NOT NULL AND deleted_at IS NULL LIMIT " + BATCH_SIZE,
+                    Long.class);
+        } catch (BadSqlGrammarException e) {
+            // Fresh database: the legacy column was never created
+            finished = true;
+            return;
+        }
+
+        if (ids.isEmpty()) {
+            finished = true;
+            return;
+        }
+
+        for (Long id : ids) {
+            try {
+                migrate(id);
+            } catch (RuntimeException e) {
+                log.warn("Blob migration failed for file {}: {}", id, e.getMessage());
+            }
+        }
+        log.info("Moved {} legacy file(s) into the blob store", ids.size());
+    }
+
+    // One row at a time, so only a single legacy blob is ever read from the database at once
+    private void migrate(Long id) {
+        // Integer.MIN_VALUE makes Connector/J stream the row instead of reading the whole LONGBLOB into memory
+        String ref = jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT file_data FROM secure_files WHERE id = ?",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setLong(1, id);
+            return ps;
+        }, rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            try (PendingBlob pending = blobStore.create();
+                 InputStream in = rs.getBinaryStream("file_data")) {
+                in.transferTo(pending.outputStream());
+                return pending.commit();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        if (ref != null) {
+            // Only clear the column if nobody else migrated the row in the meantime
+            jdbcTemplate.update(
+                    "UPDATE secure_files SET blob_ref = ?, file_data = NULL WHERE id = ? AND blob_ref IS NULL",
+                    ref, id);
+        }
+    }
+}
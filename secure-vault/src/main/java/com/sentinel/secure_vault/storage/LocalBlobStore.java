@@ -0,0 +1,193 @@
+package com.sentinel.secure_vault.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+// Content-addressed blob store on the local filesystem.
+// A blob is named after the SHA-256 of its bytes and sharded into two directory levels
+// (ab/cd/abcd....sntl) so no directory grows past a few thousand entries.
+// Writes go to a temp file in the same filesystem and are moved into place atomically,
+// so a crash never leaves a half-written blob under a valid name.
+// Note: the directory must be on a persistent volume (not the container's ephemeral disk).
+@Component
+public class LocalBlobStore implements BlobStore {
+
+    private static final Pattern REF_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final String EXTENSION = ".sntl";
+
+    private final Path root;
+    private final Path tmpDir;
+
+    public LocalBlobStore(@Value("${app.storage.root}") String root) throws IOException {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.tmpDir = this.root.resolve(".tmp");
+        Files.createDirectories(tmpDir);
+    }
+
+    @Override
+    public PendingBlob create() throws IOException {
+        Path tmp = Files.createTempFile(tmpDir, "blob-", ".part");
+        FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE);
+        MessageDigest digest = sha256();
+        OutputStream out = new DigestOutputStream(Channels.newOutputStream(channel), digest);
+
+        return new PendingBlob() {
+            private boolean committed;
+
+            @Override
+            public OutputStream outputStream() {
+                return out;
+            }
+
+            @Override
+            public String commit() throws IOException {
+                out.flush();
+                channel.force(true);
+                channel.close();
+
+                String ref = HexFormat.of().formatHex(digest.digest());
+                Path target = pathFor(ref);
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Identical content is already stored under this name
+                    Files.deleteIfExists(tmp);
+                }
+                committed = true;
+                return ref;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!committed) {
+                    channel.close();
+                    Files.deleteIfExists(tmp);
+                }
+            }
+        };
+    }
+
+    @Override
+    public StoredBlob open(String ref) throws IOException {
+        Path path = pathFor(ref);
+        long size = Files.size(path);
+
+        return new StoredBlob() {
+            @Override
+            public long size() {
+                return size;
+            }
+
+            @Override
+            public InputStream open(long offset, long length) throws IOException {
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                channel.position(offset);
+                return new LimitedInputStream(Channels.newInputStream(channel), length);
+            }
+
+            @Override
+            public long transferTo(long offset, long length, WritableByteChannel target) throws IOException {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    // transferTo may copy fewer bytes than asked for, so loop until done
+                    long position = offset;
+                    long end = Math.min(offset + length, channel.size());
+                    while (position < end) {
+                        position += channel.transferTo(position, end - position, target);
+                    }
+                    return position - offset;
+                }
+            }
+        };
+    }
+
+    @Override
+    public boolean exists(String ref) {
+        return Files.exists(pathFor(ref));
+    }
+
+    @Override
+    public void delete(String ref) throws IOException {
+        Files.deleteIfExists(pathFor(ref));
+    }
+
+    private Path pathFor(String ref) {
+        if (ref == null || !REF_PATTERN.matcher(ref).matches()) {
+            throw new IllegalArgumentException("Invalid blob reference: " + ref);
+        }
+        return root.resolve(ref.substring(0, 2)).resolve(ref.substring(2, 4)).resolve(ref + EXTENSION);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Stops reading after 'remaining' bytes, so a range read never runs into the next segment
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read != -1) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
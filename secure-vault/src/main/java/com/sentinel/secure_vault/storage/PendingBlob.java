@@ -0,0 +1,14 @@
+package com.sentinel.secure_vault.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// A blob that is still being written. Closing it without commit() discards the data.
+public interface PendingBlob extends Closeable {
+
+    OutputStream outputStream();
+
+    // Makes the written bytes durable and visible, and returns the reference to store
+    String commit() throws IOException;
+}
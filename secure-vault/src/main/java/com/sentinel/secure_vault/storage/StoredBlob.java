@@ -0,0 +1,13 @@
+package com.sentinel.secure_vault.storage;
+
+import com.sentinel.secure_vault.service.CiphertextSource;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+// A committed blob. Reads go straight from storage to the caller without buffering the whole blob.
+public interface StoredBlob extends CiphertextSource {
+
+    // Copies 'length' bytes starting at 'offset' into 'target', returning the number of bytes copied
+    long transferTo(long offset, long length, WritableByteChannel target) throws IOException;
+}
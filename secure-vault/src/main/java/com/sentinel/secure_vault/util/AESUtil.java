@@ -1,13 +1,67 @@
 package com.sentinel.secure_vault.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
 import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
+// Shared AES plumbing for EncryptionService and any other caller.
+// Cipher.getInstance() does a provider lookup and allocates a new object every time, which showed up
+// on the upload and download paths. Ciphers are therefore borrowed from a small pool per transformation
+// and returned after use. The pool is a bounded queue rather than a ThreadLocal, so it also works
+// with virtual threads (a ThreadLocal would create one Cipher per virtual thread and never reuse it).
 public class AESUtil {
 
     private static final String ALGORITHM = "AES";
 
+    // Idle ciphers kept per transformation; extra ones are simply dropped
+    private static final int MAX_IDLE_PER_TRANSFORMATION = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final Map<String, ArrayBlockingQueue<Cipher>> POOLS = new ConcurrentHashMap<>();
+
+    // Decoded keys, so the same stored key is not Base64-decoded for every range request of a video.
+    // Kept small and short-lived: these are raw file keys.
+    private static final Cache<String, SecretKeySpec> KEYS = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+
+    private AESUtil() {
+    }
+
+    /**
+     * Takes a Cipher for the given transformation from the pool (or creates one).
+     * The caller must init() it before use and hand it back with {@link #release(Cipher)}.
+     */
+    public static Cipher borrow(String transformation) throws GeneralSecurityException {
+        Cipher cipher = pool(transformation).poll();
+        return cipher != null ? cipher : Cipher.getInstance(transformation);
+    }
+
+    /**
+     * Returns a Cipher to its pool. Its state does not matter: every borrower re-initialises it.
+     */
+    public static void release(Cipher cipher) {
+        if (cipher != null) {
+            pool(cipher.getAlgorithm()).offer(cipher);
+        }
+    }
+
+    /**
+     * Rebuilds (or reuses) the SecretKey for a Base64 encoded key string.
+     */
+    public static SecretKey toKey(String base64Key) {
+        return KEYS.get(base64Key, k -> new SecretKeySpec(Base64.getDecoder().decode(k), ALGORITHM));
+    }
+
     /**
      * Decrypts a byte array using a Base64 encoded string key.
      * * @param encryptedData The raw bytes read from the file.
@@ -15,28 +69,34 @@ public class AESUtil {
      * @return              The decrypted file bytes.
      */
     public static byte[] decrypt(byte[] encryptedData, String base64Key) throws Exception {
-        // 1. Decode the Base64 key back into raw bytes
-        byte[] keyBytes = Base64.getDecoder().decode(base64Key);
-
-        // 2. Reconstruct the SecretKey
-        SecretKeySpec keySpec = new SecretKeySpec(keyBytes, ALGORITHM);
-
-        // 3. Initialize Cipher for Decryption
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        cipher.init(Cipher.DECRYPT_MODE, keySpec);
-
-        // 4. Decrypt
-        return cipher.doFinal(encryptedData);
+        return doFinal(Cipher.DECRYPT_MODE, encryptedData, toKey(base64Key));
     }
 
     /**
      * (Optional) Encrypt helper if needed elsewhere
      */
     public static byte[] encrypt(byte[] data, String base64Key) throws Exception {
-        byte[] keyBytes = Base64.getDecoder().decode(base64Key);
-        SecretKeySpec keySpec = new SecretKeySpec(keyBytes, ALGORITHM);
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        cipher.init(Cipher.ENCRYPT_MODE, keySpec);
-        return cipher.doFinal(data);
+        return doFinal(Cipher.ENCRYPT_MODE, data, toKey(base64Key));
+    }
+
+    /**
+     * Encrypts a byte array with an already built key.
+     */
+    public static byte[] encrypt(byte[] data, SecretKey key) throws Exception {
+        return doFinal(Cipher.ENCRYPT_MODE, data, key);
+    }
+
+    private static byte[] doFinal(int mode, byte[] data, SecretKey key) throws GeneralSecurityException {
+        Cipher cipher = borrow(ALGORITHM);
+        try {
+            cipher.init(mode, key);
+            return cipher.doFinal(data);
+        } finally {
+            release(cipher);
+        }
+    }
+
+    private static ArrayBlockingQueue<Cipher> pool(String transformation) {
+        return POOLS.computeIfAbsent(transformation, t -> new ArrayBlockingQueue<>(MAX_IDLE_PER_TRANSFORMATION));
     }
-}
\ No newline at end of file
+}
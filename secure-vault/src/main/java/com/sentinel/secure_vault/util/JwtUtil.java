@@ -1,12 +1,21 @@
 package com.sentinel.secure_vault.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Component
@@ -16,8 +25,37 @@ public class JwtUtil {
     // This string must be at least 32 characters long.
     private static final String SECRET_STRING = "MySuperSecretKeyForSentinelVault1234567890!!!";
 
+    // How many recently verified tokens are remembered (see parseToken)
+    private static final int VERIFIED_TOKEN_CACHE_SIZE = 10_000;
+
     private final Key key = Keys.hmacShaKeyFor(SECRET_STRING.getBytes());
 
+    // Built once: the parser is immutable and thread-safe
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(key).build();
+
+    // Tokens that already passed signature verification, keyed by the SHA-256 of the token
+    // (the raw token is never kept), each evicted exactly when its token expires.
+    private final Cache<String, Claims> verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(VERIFIED_TOKEN_CACHE_SIZE)
+            .expireAfter(new Expiry<String, Claims>() {
+                @Override
+                public long expireAfterCreate(String tokenHash, Claims claims, long currentTime) {
+                    long millisLeft = claims.getExpiration().getTime() - System.currentTimeMillis();
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(millisLeft, 0));
+                }
+
+                @Override
+                public long expireAfterUpdate(String tokenHash, Claims claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(String tokenHash, Claims claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
     // Generate Token
     public String generateToken(String username) {
         return Jwts.builder()
@@ -28,32 +66,52 @@ public class JwtUtil {
                 .compact();
     }
 
+    // Parse & Verify Token (single pass)
+    // Checks the signature and expiry once and returns the claims; a token seen recently
+    // is answered from the cache without another signature check.
+    // Throws a JwtException if the token is invalid or expired. Treat the result as read-only.
+    public Claims parseToken(String token) {
+        String tokenHash = sha256(token);
+        Claims cached = verifiedTokens.getIfPresent(tokenHash);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(tokenHash, claims);
+        }
+        return claims;
+    }
+
     // Extract Username
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return parseToken(token).getSubject();
     }
 
     // Validate Token
     public boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        final Claims claims = parseToken(token);
+        return (claims.getSubject().equals(username) && !isExpired(claims));
     }
 
     // Helper methods...
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // The parser already rejects expired tokens; this covers cached claims used right at the edge
+    public boolean isExpired(Claims claims) {
+        return claims.getExpiration() != null && claims.getExpiration().before(new Date());
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+-- Schema as Hibernate's ddl-auto created it (MySQL dialect) before migrations were introduced,
+-- when file content was still stored in secure_files.file_data.
+-- Databases created that way are baselined at version 1 (spring.flyway.baseline-on-migrate),
+-- skip this script and are brought up to date by V2 onwards.
+
+CREATE TABLE file_shares (id bigint not null auto_increment, file_id bigint not null, shared_to_user_id bigint not null, primary key (id)) engine=InnoDB;
+CREATE TABLE secure_files (id bigint not null auto_increment, encrypted_key varchar(512) not null, file_data LONGBLOB, file_name varchar(255) not null, file_type varchar(255) not null, upload_time datetime(6), owner_id bigint not null, primary key (id)) engine=InnoDB;
+CREATE TABLE users (id bigint not null auto_increment, email varchar(255) not null, password varchar(255) not null, reset_token varchar(255), role varchar(255), primary key (id)) engine=InnoDB;
+ALTER TABLE users add constraint UK6dotkott2kjsp8vw4d0m25fb7 unique (email);
+ALTER TABLE file_shares add constraint FK7k83h2jh7yt6r6xyq9cu1vty4 foreign key (file_id) references secure_files (id);
+ALTER TABLE file_shares add constraint FK9lq8shxqyg02ywj8wvixne65b foreign key (shared_to_user_id) references users (id);
+ALTER TABLE secure_files add constraint FKfvhkiaxcpq2ke71l1hpy7j2ml foreign key (owner_id) references users (id);
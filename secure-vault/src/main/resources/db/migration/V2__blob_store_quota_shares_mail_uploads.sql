@@ -0,0 +1,32 @@
+-- Everything added on top of the baseline before migrations were introduced.
+-- Existing rows keep working: content stays in file_data until LegacyBlobMigration moves it,
+-- a NULL cipher_format marks legacy ciphertext, and UsageBackfill fills in sizes and used_bytes.
+
+-- Content in the BlobStore, sizes for the quota, tombstones
+ALTER TABLE secure_files ADD COLUMN blob_ref varchar(64), ADD COLUMN cipher_format integer, ADD COLUMN plain_size bigint, ADD COLUMN encrypted_size bigint, ADD COLUMN deleted_at datetime(6);
+CREATE INDEX idx_secure_files_blob_ref on secure_files (blob_ref);
+CREATE INDEX idx_secure_files_deleted_at on secure_files (deleted_at);
+
+ALTER TABLE users ADD COLUMN used_bytes bigint default 0 not null;
+
+-- Per-owner deduplication
+CREATE TABLE content_refs (ref_count integer not null, owner_id bigint not null, blob_ref varchar(64) not null, content_hash varchar(64) not null, primary key (blob_ref)) engine=InnoDB;
+ALTER TABLE content_refs add constraint UKkogaxt0x27kmdp83kvd4cro3l unique (owner_id, content_hash);
+ALTER TABLE content_refs add constraint FKao2n3h2n7bgi2tkkqmey8mgsh foreign key (owner_id) references users (id);
+
+-- "Shared with me" listing and share lookups
+ALTER TABLE file_shares ADD COLUMN shared_at datetime(6);
+CREATE INDEX idx_file_shares_recipient_file on file_shares (shared_to_user_id, file_id);
+CREATE INDEX idx_file_shares_file_recipient on file_shares (file_id, shared_to_user_id);
+
+-- Outbound mail queue
+CREATE TABLE outbound_mail (attempts integer not null, created_at datetime(6), id bigint not null auto_increment, locked_until datetime(6), next_attempt_at datetime(6) not null, sent_at datetime(6), claim_token varchar(36), last_error varchar(1000), body TEXT not null, recipient varchar(255) not null, sender varchar(255) not null, subject varchar(255) not null, status enum ('DEAD','PENDING','SENDING','SENT') not null, primary key (id)) engine=InnoDB;
+CREATE INDEX idx_outbound_mail_due on outbound_mail (status, next_attempt_at);
+CREATE INDEX idx_outbound_mail_claim on outbound_mail (claim_token);
+
+-- Resumable chunked uploads
+CREATE TABLE upload_sessions (chunk_count integer not null, chunk_size integer not null, completing bit not null, created_at datetime(6), last_activity datetime(6), owner_id bigint not null, total_size bigint not null, sntl_header varbinary(20) not null, id varchar(36) not null, encrypted_key varchar(512) not null, file_name varchar(255) not null, file_type varchar(255) not null, primary key (id)) engine=InnoDB;
+CREATE TABLE upload_chunks (chunk_index integer not null, encrypted_size bigint not null, id bigint not null auto_increment, session_id varchar(36) not null, blob_ref varchar(64) not null, primary key (id)) engine=InnoDB;
+ALTER TABLE upload_chunks add constraint UKpab3jgavi2b7bw6tfeprvkqxb unique (session_id, chunk_index);
+ALTER TABLE upload_chunks add constraint FKn3mc0mic1ghpuq4u6mn8q0qja foreign key (session_id) references upload_sessions (id);
+ALTER TABLE upload_sessions add constraint FKewauhj7w2mghwi1cyq9g6cyfm foreign key (owner_id) references users (id);
@@ -0,0 +1,5 @@
+-- A user's files, newest first; also serves the owner_id foreign key
+CREATE INDEX idx_secure_files_owner_upload ON secure_files (owner_id, upload_time);
+
+-- Password reset looks users up by token
+CREATE INDEX idx_users_reset_token ON users (reset_token);
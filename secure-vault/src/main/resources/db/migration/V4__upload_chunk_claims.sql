@@ -0,0 +1,3 @@
+-- A chunk row is claimed before the chunk is encrypted (blob_ref is NULL until it is stored),
+-- and keeps the plaintext hash so a resend with different content can be rejected
+ALTER TABLE upload_chunks MODIFY blob_ref varchar(64) NULL, ADD COLUMN plaintext_sha256 varchar(64);
@@ -0,0 +1,6 @@
+-- A file is shared with a user at most once: drop duplicates left by concurrent shares
+-- (keeping the oldest row), then make the (file_id, shared_to_user_id) index unique
+DELETE s FROM file_shares s
+    JOIN file_shares kept ON kept.file_id = s.file_id AND kept.shared_to_user_id = s.shared_to_user_id AND kept.id < s.id;
+ALTER TABLE file_shares DROP INDEX idx_file_shares_file_recipient,
+    ADD CONSTRAINT idx_file_shares_file_recipient UNIQUE (file_id, shared_to_user_id);
@@ -0,0 +1,6 @@
+-- Sent and dead mails no longer keep their body: it can hold a live password reset link
+ALTER TABLE outbound_mail MODIFY body TEXT NULL;
+UPDATE outbound_mail SET body = NULL WHERE status IN ('SENT', 'DEAD');
+
+-- Reset tokens expire; tokens issued before this have no expiry and are no longer accepted
+ALTER TABLE users ADD COLUMN reset_token_expires_at datetime(6);
@@ -0,0 +1,2 @@
+-- Blobs replaced by re-encryption; FilePurge deletes them once open downloads have had time to finish
+CREATE TABLE retired_blobs (blob_ref varchar(64) not null, retired_at datetime(6) not null, primary key (blob_ref)) engine=InnoDB;
@@ -0,0 +1,3 @@
+-- Chunk claims are leases: a claim left behind by a request that died can be taken over after
+-- app.upload.claim-timeout (claims without a token, e.g. from before this, can be taken at once)
+ALTER TABLE upload_chunks ADD COLUMN claim_token varchar(36), ADD COLUMN claimed_at datetime(6);
@@ -0,0 +1,42 @@
+package com.sentinel.secure_vault.controller;
+
+import com.sentinel.secure_vault.service.TooManyRequestsException;
+import com.sentinel.secure_vault.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AuthControllerTests {
+
+	@Test
+	void rateLimitedLoginIsAnswered429WithRetryAfter() throws Exception {
+		UserService userService = mock(UserService.class);
+		when(userService.login(eq("a@test"), any(), eq("10.1.2.3")))
+				.thenThrow(new TooManyRequestsException("Too many login attempts. Please try again later.", 42));
+		AuthController controller = new AuthController();
+		ReflectionTestUtils.setField(controller, "userService", userService);
+		MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+		mvc.perform(post("/api/auth/login")
+						.with(request -> {
+							request.setRemoteAddr("10.1.2.3");
+							return request;
+						})
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"email\":\"a@test\",\"password\":\"x\"}"))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().string("Retry-After", "42"))
+				.andExpect(content().string("Too many login attempts. Please try again later."));
+	}
+}
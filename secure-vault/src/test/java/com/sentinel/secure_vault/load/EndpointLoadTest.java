@@ -0,0 +1,358 @@
+package com.sentinel.secure_vault.load;
+
+import com.sun.management.ThreadMXBean;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// End-to-end load test: the whole app on a random port, with H2 (MySQL mode) instead of MySQL and
+// SmtpStub instead of the Brevo relay, driven over HTTP by a scripted mix of register, login, upload,
+// list, share, download, delete and forgot-password. Prints throughput, latency percentiles and
+// server-side allocation per endpoint, plus the JVM's allocation rate and GC pauses.
+//
+//   mvn test -Pload
+//   mvn test -Pload -Dload.clients=100 -Dload.duration=120s -Dload.warmup=20s
+//
+// Each client is a virtual thread acting as its own user. Client and server share one JVM, so the
+// JVM-wide allocation rate includes the client; the per-endpoint column is the server's request
+// thread only (bytes allocated on async threads, e.g. the tail of a streamed download, are not in it).
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false",
+		// The migrations are MySQL scripts; H2 gets its schema from the entities
+		"spring.flyway.enabled=false",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.mail.host=localhost",
+		"spring.mail.username=load",
+		"spring.mail.password=load",
+		"spring.mail.properties.mail.smtp.auth=false",
+		"spring.mail.properties.mail.smtp.starttls.enable=false",
+		"spring.mail.properties.mail.smtp.starttls.required=false",
+		"app.mail.queue.poll-interval=500ms",
+		"app.frontend.url=http://localhost",
+		// One user per client, so the per-account limit never triggers; the per-IP one would (all from 127.0.0.1)
+		"app.security.login-rate-limit.ip-capacity=100000000",
+		"app.security.login-rate-limit.ip-per-minute=100000000",
+		"app.security.password-hashing.queue-capacity=10000"
+})
+class EndpointLoadTest {
+
+	private static final SmtpStub SMTP = SmtpStub.start();
+	private static final LoadReport REPORT = new LoadReport();
+	private static final Path STORAGE = createStorage();
+
+	private static final String PASSWORD = "load-test-password";
+	private static final byte[] CONTENT = new byte[32 * 1024 * 1024];
+
+	static {
+		new Random(1).nextBytes(CONTENT);
+	}
+
+	@LocalServerPort
+	int port;
+
+	private HttpClient http;
+
+	@DynamicPropertySource
+	static void properties(DynamicPropertyRegistry registry) {
+		registry.add("spring.mail.port", SMTP::port);
+		registry.add("app.storage.root", STORAGE::toString);
+	}
+
+	@AfterAll
+	static void stopSmtp() throws IOException {
+		SMTP.close();
+	}
+
+	@Test
+	void mixedWorkload() throws Exception {
+		int clients = Integer.getInteger("load.clients", 32);
+		Duration warmup = duration("load.warmup", "10s");
+		Duration measured = duration("load.duration", "30s");
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			http = HttpClient.newBuilder()
+					.version(HttpClient.Version.HTTP_1_1)
+					.executor(executor)
+					.build();
+
+			List<String> emails = new ArrayList<>();
+			for (int i = 0; i < clients; i++) {
+				emails.add("user" + i + "@load.test");
+			}
+
+			// Everyone exists before anyone starts sharing with them; the clock starts after that
+			AtomicLong start = new AtomicLong();
+			CountDownLatch registered = new CountDownLatch(clients);
+			List<Future<?>> running = new ArrayList<>();
+			for (int i = 0; i < clients; i++) {
+				Client client = new Client(emails.get(i), emails, i);
+				running.add(executor.submit(() -> {
+					client.signUp();
+					registered.countDown();
+					registered.await();
+					start.compareAndSet(0, System.nanoTime());
+					client.run(start.get() + warmup.toNanos() + measured.toNanos());
+					return null;
+				}));
+			}
+			registered.await();
+			start.compareAndSet(0, System.nanoTime());
+
+			Thread.sleep(warmup);
+			REPORT.start();
+			for (Future<?> client : running) {
+				client.get();
+			}
+			REPORT.stop();
+		}
+
+		String report = REPORT.format() + String.format("Mails received by the SMTP stub: %d%n", SMTP.received());
+		System.out.println();
+		System.out.println(report);
+		Files.writeString(Path.of("target", "load-report.txt"), report);
+
+		assertTrue(REPORT.totalRequests() > 0, "No requests were made");
+		assertTrue(REPORT.totalErrors() <= REPORT.totalRequests() / 100,
+				"More than 1% of requests failed:\n" + report);
+	}
+
+	// One simulated user: registers and logs in, then loops over weighted actions until 'end'
+	// (now and then registering a throwaway account, so registration is measured too).
+	// Its own files (and what it shared) are tracked locally, so downloads, shares and deletes
+	// always target files it owns.
+	private final class Client {
+
+		private final String email;
+		private final List<String> others;
+		private final SplittableRandom random;
+		private final List<Long> files = new ArrayList<>();
+		private final Set<String> shared = new HashSet<>();
+		private String token;
+
+		Client(String email, List<String> everyone, int seed) {
+			this.email = email;
+			this.others = everyone.stream().filter(other -> !other.equals(email)).toList();
+			this.random = new SplittableRandom(seed);
+		}
+
+		void signUp() throws Exception {
+			call("POST /api/auth/register", post("/api/auth/register", credentials(email)));
+			login();
+		}
+
+		void run(long end) throws Exception {
+			while (System.nanoTime() < end) {
+				int roll = random.nextInt(100);
+				if (roll < 8) {
+					login();
+				} else if (roll < 30 || files.isEmpty()) {
+					upload();
+				} else if (roll < 58) {
+					call("GET /api/files/download/{id}", get("/api/files/download/" + pick()));
+				} else if (roll < 70) {
+					call("GET /api/files/page", get("/api/files/page?page=0&size=50"));
+				} else if (roll < 78) {
+					share();
+				} else if (roll < 86) {
+					call("GET /api/files/shared", get("/api/files/shared?page=0&size=50"));
+				} else if (roll < 98) {
+					// Keep each user's file count bounded, like a real user cleaning up
+					if (files.size() > 5) {
+						Long id = files.remove(random.nextInt(files.size()));
+						call("DELETE /api/files/delete/{id}", authorized("/api/files/delete/" + id).DELETE().build());
+					}
+				} else if (roll == 98) {
+					String newcomer = "new-" + UUID.randomUUID() + "@load.test";
+					call("POST /api/auth/register", post("/api/auth/register", credentials(newcomer)));
+				} else {
+					call("POST /api/auth/forgot-password", HttpRequest.newBuilder(uri("/api/auth/forgot-password?email=" + encode(email)))
+							.POST(HttpRequest.BodyPublishers.noBody()).build());
+				}
+			}
+		}
+
+		private void login() throws Exception {
+			String body = call("POST /api/auth/login", post("/api/auth/login", credentials(email)));
+			if (body != null) {
+				token = body;
+			}
+		}
+
+		// Only pairs not shared before: sharing twice is rejected by design, not a failure under load
+		private void share() {
+			if (others.isEmpty()) {
+				return;
+			}
+			Long fileId = pick();
+			String to = others.get(random.nextInt(others.size()));
+			if (shared.add(fileId + " " + to)) {
+				call("POST /api/files/share", authorized("/api/files/share?fileId=" + fileId + "&email=" + encode(to))
+						.POST(HttpRequest.BodyPublishers.noBody()).build());
+			}
+		}
+
+		private void upload() throws Exception {
+			int size = fileSize();
+			int offset = random.nextInt(CONTENT.length - size + 1);
+			String boundary = "----load-test-" + random.nextLong();
+			byte[] head = ("--" + boundary + "\r\n"
+					+ "Content-Disposition: form-data; name=\"file\"; filename=\"file-" + size + ".bin\"\r\n"
+					+ "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+			byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+			HttpRequest request = authorized("/api/files/upload")
+					.header("Content-Type", "multipart/form-data; boundary=" + boundary)
+					.POST(HttpRequest.BodyPublishers.concat(
+							HttpRequest.BodyPublishers.ofByteArray(head),
+							HttpRequest.BodyPublishers.ofByteArray(CONTENT, offset, size),
+							HttpRequest.BodyPublishers.ofByteArray(tail)))
+					.build();
+			String body = call("POST /api/files/upload", request);
+			if (body != null) {
+				files.add(Long.parseLong(body.substring(body.lastIndexOf(':') + 1).trim()));
+			}
+		}
+
+		// Heavy-tailed, roughly what a personal vault holds: mostly documents, some photos and
+		// PDFs, a few videos/archives. Log-uniform within each band.
+		private int fileSize() {
+			int roll = random.nextInt(100);
+			if (roll < 50) {
+				return logUniform(4 * 1024, 64 * 1024);
+			} else if (roll < 80) {
+				return logUniform(64 * 1024, 1024 * 1024);
+			} else if (roll < 95) {
+				return logUniform(1024 * 1024, 8 * 1024 * 1024);
+			}
+			return logUniform(8 * 1024 * 1024, CONTENT.length);
+		}
+
+		private int logUniform(int min, int max) {
+			return (int) Math.exp(Math.log(min) + random.nextDouble() * (Math.log(max) - Math.log(min)));
+		}
+
+		private Long pick() {
+			return files.get(random.nextInt(files.size()));
+		}
+
+		// Returns the body of a 2xx answer, or null (recorded as an error) otherwise
+		private String call(String endpoint, HttpRequest request) {
+			long start = System.nanoTime();
+			try {
+				HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+				boolean ok = response.statusCode() / 100 == 2;
+				REPORT.request(endpoint, System.nanoTime() - start, ok);
+				return ok ? response.body() : null;
+			} catch (IOException e) {
+				REPORT.request(endpoint, System.nanoTime() - start, false);
+				return null;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+
+		private HttpRequest get(String path) {
+			return authorized(path).GET().build();
+		}
+
+		private HttpRequest.Builder authorized(String path) {
+			return HttpRequest.newBuilder(uri(path)).header("Authorization", "Bearer " + token);
+		}
+
+		private HttpRequest post(String path, String json) {
+			return HttpRequest.newBuilder(uri(path))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(json))
+					.build();
+		}
+
+		private String credentials(String email) {
+			return "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}";
+		}
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	private static Duration duration(String property, String fallback) {
+		return Duration.parse("PT" + System.getProperty(property, fallback).toUpperCase());
+	}
+
+	private static Path createStorage() {
+		try {
+			return Files.createTempDirectory("secure-vault-load");
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@TestConfiguration
+	static class AllocationTracking {
+
+		// Bytes allocated by the request thread per handled request, keyed like the client's labels
+		@Bean
+		Filter allocationRecordingFilter() {
+			ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+			return (request, response, chain) -> {
+				long before = threads.getCurrentThreadAllocatedBytes();
+				try {
+					chain.doFilter(request, response);
+				} finally {
+					long after = threads.getCurrentThreadAllocatedBytes();
+					Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+					// -1 on virtual threads, where per-thread allocation is not tracked
+					if (pattern != null && before >= 0 && after >= 0) {
+						REPORT.allocated(((HttpServletRequest) request).getMethod() + " " + pattern, after - before);
+					}
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package com.sentinel.secure_vault.load;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.ThreadMXBean;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Collects what one load-test run measured and formats it:
+// per endpoint ("POST /api/files/upload") the client-side latencies and errors, and the bytes the
+// server allocated on the request thread; for the whole JVM the allocation rate and the GC pauses.
+// Only data recorded between start() and stop() counts (the warm-up is thrown away).
+class LoadReport {
+
+	private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+	private final List<Double> gcPausesMs = new ArrayList<>();
+	private final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private final NotificationListener gcListener = (notification, handback) -> recordGc((CompositeData) notification.getUserData());
+
+	private volatile boolean recording;
+	private long startNanos;
+	private long stopNanos;
+	private long startAllocated;
+	private long stopAllocated;
+
+	LoadReport() {
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (gc instanceof NotificationEmitter emitter) {
+				emitter.addNotificationListener(gcListener, null, null);
+			}
+		}
+	}
+
+	void start() {
+		endpoints.clear();
+		synchronized (gcPausesMs) {
+			gcPausesMs.clear();
+		}
+		startAllocated = threads.getTotalThreadAllocatedBytes();
+		startNanos = System.nanoTime();
+		recording = true;
+	}
+
+	void stop() {
+		recording = false;
+		stopNanos = System.nanoTime();
+		stopAllocated = threads.getTotalThreadAllocatedBytes();
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (gc instanceof NotificationEmitter emitter) {
+				try {
+					emitter.removeNotificationListener(gcListener);
+				} catch (Exception e) {
+					// Not registered
+				}
+			}
+		}
+	}
+
+	// Client side: one finished request
+	void request(String endpoint, long nanos, boolean ok) {
+		if (recording) {
+			endpoints.computeIfAbsent(endpoint, k -> new Endpoint()).request(nanos, ok);
+		}
+	}
+
+	// Server side: bytes allocated by the request thread while handling one request
+	void allocated(String endpoint, long bytes) {
+		if (recording) {
+			endpoints.computeIfAbsent(endpoint, k -> new Endpoint()).allocated.add(bytes);
+		}
+	}
+
+	long totalRequests() {
+		return endpoints.values().stream().mapToLong(e -> e.count()).sum();
+	}
+
+	long totalErrors() {
+		return endpoints.values().stream().mapToLong(e -> e.errors.sum()).sum();
+	}
+
+	String format() {
+		double seconds = Duration.ofNanos(stopNanos - startNanos).toMillis() / 1000.0;
+		StringBuilder out = new StringBuilder();
+		out.append(String.format("%-40s %8s %8s %7s %8s %8s %8s %8s %11s%n",
+				"Endpoint", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms", "alloc/req"));
+
+		for (Map.Entry<String, Endpoint> entry : new TreeMap<>(endpoints).entrySet()) {
+			Endpoint endpoint = entry.getValue();
+			long[] sorted = endpoint.sortedLatencies();
+			long count = sorted.length + endpoint.errors.sum();
+			out.append(String.format("%-40s %8d %8.1f %7d %8.1f %8.1f %8.1f %8.1f %11s%n",
+					entry.getKey(), count, count / seconds, endpoint.errors.sum(),
+					percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), percentile(sorted, 1.0),
+					count == 0 ? "-" : bytes(endpoint.allocated.sum() / count)));
+		}
+
+		double[] pauses;
+		synchronized (gcPausesMs) {
+			pauses = gcPausesMs.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+		}
+		double totalPause = Arrays.stream(pauses).sum();
+		out.append(String.format("%nRun: %.1f s, %d requests (%.1f/s), %d errors%n",
+				seconds, totalRequests(), totalRequests() / seconds, totalErrors()));
+		out.append(String.format("Allocation rate (whole JVM, client included): %s/s%n",
+				bytes((long) ((stopAllocated - startAllocated) / seconds))));
+		out.append(String.format("GC pauses: %d, total %.1f ms (%.2f%% of run), p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+				pauses.length, totalPause, totalPause / (seconds * 10),
+				percentileMs(pauses, 0.50), percentileMs(pauses, 0.99), percentileMs(pauses, 1.0)));
+		return out.toString();
+	}
+
+	private void recordGc(CompositeData data) {
+		if (!recording) {
+			return;
+		}
+		GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from(data);
+		// Concurrent cycles (e.g. "G1 Concurrent GC") run next to the application and are not pauses
+		if (info.getGcName().contains("Concurrent")) {
+			return;
+		}
+		synchronized (gcPausesMs) {
+			gcPausesMs.add((double) info.getGcInfo().getDuration());
+		}
+	}
+
+	private static double percentile(long[] sortedNanos, double p) {
+		if (sortedNanos.length == 0) {
+			return 0;
+		}
+		return sortedNanos[Math.max(0, (int) Math.ceil(p * sortedNanos.length) - 1)] / 1_000_000.0;
+	}
+
+	private static double percentileMs(double[] sorted, double p) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return sorted[Math.max(0, (int) Math.ceil(p * sorted.length) - 1)];
+	}
+
+	private static String bytes(long bytes) {
+		if (bytes >= 1024 * 1024) {
+			return String.format("%.1f MB", bytes / (1024.0 * 1024));
+		}
+		return String.format("%.1f KB", bytes / 1024.0);
+	}
+
+	private static final class Endpoint {
+
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder allocated = new LongAdder();
+		private long[] latencies = new long[256];
+		private int size;
+
+		synchronized void request(long nanos, boolean ok) {
+			if (!ok) {
+				errors.increment();
+				return;
+			}
+			if (size == latencies.length) {
+				latencies = Arrays.copyOf(latencies, size * 2);
+			}
+			latencies[size++] = nanos;
+		}
+
+		synchronized long count() {
+			return size + errors.sum();
+		}
+
+		synchronized long[] sortedLatencies() {
+			long[] sorted = Arrays.copyOf(latencies, size);
+			Arrays.sort(sorted);
+			return sorted;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.sentinel.secure_vault.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Just enough SMTP (no auth, no TLS) to accept and count every mail the app sends,
+// so MailWorker runs its real delivery path without reaching the Brevo relay.
+class SmtpStub implements AutoCloseable {
+
+	private final ServerSocket server;
+	private final AtomicInteger received = new AtomicInteger();
+
+	private SmtpStub(ServerSocket server) {
+		this.server = server;
+		Thread.ofVirtual().name("smtp-stub").start(this::acceptLoop);
+	}
+
+	static SmtpStub start() {
+		try {
+			return new SmtpStub(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()));
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not start the SMTP stub", e);
+		}
+	}
+
+	int port() {
+		return server.getLocalPort();
+	}
+
+	int received() {
+		return received.get();
+	}
+
+	@Override
+	public void close() throws IOException {
+		server.close();
+	}
+
+	private void acceptLoop() {
+		while (!server.isClosed()) {
+			try {
+				Socket socket = server.accept();
+				Thread.ofVirtual().start(() -> converse(socket));
+			} catch (IOException e) {
+				return; // Closed
+			}
+		}
+	}
+
+	private void converse(Socket socket) {
+		try (socket;
+			 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+			OutputStream out = socket.getOutputStream();
+			reply(out, "220 smtp-stub ESMTP");
+
+			String line;
+			while ((line = in.readLine()) != null) {
+				String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+				switch (command) {
+					case "EHLO", "HELO" -> reply(out, "250 smtp-stub");
+					case "DATA" -> {
+						reply(out, "354 End data with <CR><LF>.<CR><LF>");
+						while ((line = in.readLine()) != null && !line.equals(".")) {
+							// Discard the message
+						}
+						received.incrementAndGet();
+						reply(out, "250 OK queued");
+					}
+					case "QUIT" -> {
+						reply(out, "221 Bye");
+						return;
+					}
+					default -> reply(out, "250 OK"); // MAIL, RCPT, RSET, NOOP
+				}
+			}
+		} catch (IOException e) {
+			// Client went away
+		}
+	}
+
+	private static void reply(OutputStream out, String line) throws IOException {
+		out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+		out.flush();
+	}
+}
@@ -0,0 +1,85 @@
+package com.sentinel.secure_vault.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheLoadsTests {
+
+	private final AsyncCache<String, String> cache = Caffeine.newBuilder().buildAsync();
+	private final CountDownLatch loading = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	void concurrentCallersShareOneLoad() throws Exception {
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> CacheLoads.getOrLoad(cache, "k", this::slowLoad));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> CacheLoads.getOrLoad(cache, "k", this::slowLoad));
+
+		release.countDown();
+		assertEquals("value:k", first.get(5, TimeUnit.SECONDS));
+		assertEquals("value:k", second.get(5, TimeUnit.SECONDS));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void failedLoadIsNotCachedAndWaitingCallersLoadThemselves() throws Exception {
+		CompletableFuture<String> failing = CompletableFuture.supplyAsync(() -> CacheLoads.getOrLoad(cache, "k", k -> {
+			slowLoad(k);
+			throw new IllegalStateException("database down");
+		}));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		CompletableFuture<String> waiting = CompletableFuture.supplyAsync(() -> CacheLoads.getOrLoad(cache, "k", k -> {
+			loads.incrementAndGet();
+			return "retried:" + k;
+		}));
+		waitUntilParked(waiting);
+
+		release.countDown();
+		Exception failure = assertThrows(Exception.class, () -> failing.get(5, TimeUnit.SECONDS));
+		assertEquals("database down", failure.getCause().getMessage());
+		// The waiting caller saw the cancelled future and ran its own loader instead of failing
+		assertEquals("retried:k", waiting.get(5, TimeUnit.SECONDS));
+		assertEquals(2, loads.get());
+		assertEquals("retried:k", cache.synchronous().getIfPresent("k"));
+	}
+
+	@Test
+	void failedLoadLeavesNoEntry() {
+		assertThrows(IllegalStateException.class, () -> CacheLoads.getOrLoad(cache, "k", k -> {
+			throw new IllegalStateException("database down");
+		}));
+		assertNull(cache.getIfPresent("k"));
+	}
+
+	private String slowLoad(String key) {
+		loads.incrementAndGet();
+		loading.countDown();
+		try {
+			release.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return "value:" + key;
+	}
+
+	// The second caller has found the first caller's future and is waiting on it
+	private void waitUntilParked(CompletableFuture<String> caller) throws InterruptedException {
+		CompletableFuture<String> inCache = cache.getIfPresent("k");
+		for (int i = 0; i < 500 && inCache.getNumberOfDependents() == 0; i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(inCache.getNumberOfDependents() > 0 && !caller.isDone());
+	}
+}
@@ -0,0 +1,153 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.dto.UploadSessionDto;
+import com.sentinel.secure_vault.model.User;
+import com.sentinel.secure_vault.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class ChunkedUploadServiceTests {
+
+	// app.upload.chunk-size in application-h2.yaml: two segments
+	private static final int CHUNK = 2 * EncryptionService.SEGMENT_SIZE;
+
+	@Autowired
+	private ChunkedUploadService chunkedUploadService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void resendOfAStoredChunkMustHaveTheSameContent() throws Exception {
+		String email = newUser();
+		byte[] plain = random(2 * CHUNK + 10, 1);
+		UploadSessionDto session = chunkedUploadService.initiate("a.bin", null, plain.length, email);
+		String id = session.getUploadId();
+
+		chunkedUploadService.storeChunk(id, 0, chunk(plain, 0), email);
+		// Same bytes again: accepted, nothing is encrypted a second time
+		chunkedUploadService.storeChunk(id, 0, chunk(plain, 0), email);
+
+		byte[] changed = Arrays.copyOfRange(plain, 0, CHUNK);
+		changed[100] ^= 1;
+		RuntimeException rejected = assertThrows(RuntimeException.class,
+				() -> chunkedUploadService.storeChunk(id, 0, new ByteArrayInputStream(changed), email));
+		assertTrue(rejected.getMessage().contains("different content"), rejected.getMessage());
+
+		chunkedUploadService.storeChunk(id, 2, chunk(plain, 2), email);
+		chunkedUploadService.storeChunk(id, 1, chunk(plain, 1), email);
+		String result = chunkedUploadService.complete(id, email);
+
+		FileStream stream = fileService.openFileStream(Long.valueOf(result.substring(result.lastIndexOf(' ') + 1)), email);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		stream.writeTo(out, 0, stream.getLength() - 1);
+		assertArrayEquals(plain, out.toByteArray());
+	}
+
+	@Test
+	void chunkCutOffMidwayCanBeSentAgain() throws Exception {
+		String email = newUser();
+		byte[] plain = random(2 * CHUNK + 10, 2);
+		String id = chunkedUploadService.initiate("b.bin", null, plain.length, email).getUploadId();
+
+		// Cut off in the second segment of chunk 1, then in the first segment of chunk 0
+		assertThrows(IOException.class,
+				() -> chunkedUploadService.storeChunk(id, 1, cutOff(plain, 1, EncryptionService.SEGMENT_SIZE + 1000), email));
+		assertThrows(IOException.class, () -> chunkedUploadService.storeChunk(id, 0, cutOff(plain, 0, 1000), email));
+		assertEquals(List.of(), chunkedUploadService.getStatus(id, email).getReceivedChunks());
+
+		// Only those chunks are sent again; the upload goes on
+		chunkedUploadService.storeChunk(id, 1, chunk(plain, 1), email);
+		chunkedUploadService.storeChunk(id, 0, chunk(plain, 0), email);
+		chunkedUploadService.storeChunk(id, 2, chunk(plain, 2), email);
+		String result = chunkedUploadService.complete(id, email);
+
+		FileStream stream = fileService.openFileStream(Long.valueOf(result.substring(result.lastIndexOf(' ') + 1)), email);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		stream.writeTo(out, 0, stream.getLength() - 1);
+		assertArrayEquals(plain, out.toByteArray());
+	}
+
+	@Test
+	void claimOfARequestThatDiedIsTakenOverAfterTheTimeout() throws Exception {
+		String email = newUser();
+		byte[] plain = random(2 * CHUNK, 3);
+		String id = chunkedUploadService.initiate("c.bin", null, plain.length, email).getUploadId();
+
+		// A request that died while receiving chunk 0 left its claim behind
+		jdbcTemplate.update("INSERT INTO upload_chunks (session_id, chunk_index, encrypted_size, claim_token, claimed_at) " +
+				"VALUES (?, 0, 0, 'died', ?)", id, LocalDateTime.now());
+		RuntimeException busy = assertThrows(RuntimeException.class,
+				() -> chunkedUploadService.storeChunk(id, 0, chunk(plain, 0), email));
+		assertTrue(busy.getMessage().contains("already being received"), busy.getMessage());
+
+		// app.upload.claim-timeout: 10m
+		jdbcTemplate.update("UPDATE upload_chunks SET claimed_at = ? WHERE session_id = ?", LocalDateTime.now().minusMinutes(11), id);
+		assertEquals(List.of(0), chunkedUploadService.storeChunk(id, 0, chunk(plain, 0), email).getReceivedChunks());
+
+		// Sealing had started for chunk 1 with other content (its hash is recorded): a different retry is refused
+		jdbcTemplate.update("INSERT INTO upload_chunks (session_id, chunk_index, encrypted_size, plaintext_sha256) " +
+				"VALUES (?, 1, 0, ?)", id, "0".repeat(64));
+		RuntimeException changed = assertThrows(RuntimeException.class,
+				() -> chunkedUploadService.storeChunk(id, 1, chunk(plain, 1), email));
+		assertTrue(changed.getMessage().contains("different content"), changed.getMessage());
+		assertEquals(List.of(0), chunkedUploadService.getStatus(id, email).getReceivedChunks());
+	}
+
+	private String newUser() {
+		User user = new User();
+		user.setEmail(UUID.randomUUID() + "@test.local");
+		user.setPassword("unused");
+		user.setRole("USER");
+		userRepository.save(user);
+		return user.getEmail();
+	}
+
+	private static byte[] random(int size, long seed) {
+		byte[] bytes = new byte[size];
+		new Random(seed).nextBytes(bytes);
+		return bytes;
+	}
+
+	private static InputStream chunk(byte[] plain, int index) {
+		int from = index * CHUNK;
+		return new ByteArrayInputStream(plain, from, Math.min(CHUNK, plain.length - from));
+	}
+
+	// The first 'length' bytes of a chunk, then a failure like a dropped connection
+	private static InputStream cutOff(byte[] plain, int index, int length) {
+		return new SequenceInputStream(new ByteArrayInputStream(plain, index * CHUNK, length), new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("Connection reset");
+			}
+		});
+	}
+}
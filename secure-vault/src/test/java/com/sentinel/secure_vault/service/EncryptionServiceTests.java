@@ -0,0 +1,184 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.util.AESUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EncryptionServiceTests {
+
+	private static final Integer SNTL = (int) SntlHeader.VERSION_1;
+	private static final Integer LEGACY = null;
+
+	private final EncryptionService encryptionService = new EncryptionService();
+
+	@Test
+	void streamingEncryptRoundTripsForAllSegmentBoundaries() throws Exception {
+		SecretKey key = encryptionService.generateKey();
+		int segment = EncryptionService.SEGMENT_SIZE;
+
+		for (int size : new int[]{0, 1, segment - 1, segment, segment + 1, 3 * segment, 200_000 + 7}) {
+			byte[] plain = new byte[size];
+			new Random(size).nextBytes(plain);
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			long written = encryptionService.encrypt(new ByteArrayInputStream(plain), out, key);
+
+			assertEquals(out.size(), written);
+			assertTrue(SntlHeader.hasMagic(out.toByteArray()));
+			assertEquals(size, encryptionService.plaintextLength(CiphertextSource.of(out.toByteArray()), encryptionService.encodeKey(key), SNTL));
+			assertArrayEquals(plain, encryptionService.decrypt(out.toByteArray(), encryptionService.encodeKey(key)));
+		}
+	}
+
+	@Test
+	void tamperedOrTruncatedContainerIsRejected() throws Exception {
+		SecretKey key = encryptionService.generateKey();
+		String base64Key = encryptionService.encodeKey(key);
+		byte[] plain = new byte[3 * EncryptionService.SEGMENT_SIZE];
+		byte[] sealed = encryptionService.encrypt(plain, key);
+
+		byte[] flipped = sealed.clone();
+		flipped[flipped.length / 2] ^= 1;
+		assertThrows(AEADBadTagException.class, () -> encryptionService.decrypt(flipped, base64Key));
+
+		// Dropping the last segment leaves a segment that was not sealed as the last one
+		byte[] truncated = Arrays.copyOf(sealed, sealed.length - EncryptionService.SEGMENT_SIZE - SntlHeader.TAG_LENGTH);
+		assertThrows(AEADBadTagException.class, () -> encryptionService.decrypt(truncated, base64Key));
+	}
+
+	@Test
+	void containerFormatIsTakenFromTheRowNotTheContent() throws Exception {
+		SecretKey key = encryptionService.generateKey();
+		String base64Key = encryptionService.encodeKey(key);
+		byte[] sealed = encryptionService.encrypt(new byte[4 * 1024], key);
+
+		// A v1 row whose blob lost its header must not fall back to unauthenticated AES/ECB
+		CiphertextSource stripped = CiphertextSource.of(Arrays.copyOfRange(sealed, SntlHeader.LENGTH, sealed.length));
+		assertThrows(IllegalStateException.class, () -> encryptionService.plaintextLength(stripped, base64Key, SNTL));
+		assertThrows(IllegalStateException.class,
+				() -> encryptionService.decryptRange(stripped, base64Key, SNTL, 0, 10, new ByteArrayOutputStream()));
+
+		byte[] damaged = sealed.clone();
+		damaged[0] ^= 1;
+		assertThrows(IllegalStateException.class,
+				() -> encryptionService.decryptRange(CiphertextSource.of(damaged), base64Key, SNTL, 0, 10, new ByteArrayOutputStream()));
+
+		assertThrows(IllegalStateException.class,
+				() -> encryptionService.plaintextLength(CiphertextSource.of(sealed), base64Key, 2));
+	}
+
+	@Test
+	void legacyEcbFilesAreStillReadable() throws Exception {
+		SecretKey key = encryptionService.generateKey();
+		String base64Key = encryptionService.encodeKey(key);
+		byte[] plain = new byte[100_003];
+		new Random(3).nextBytes(plain);
+		CiphertextSource legacy = CiphertextSource.of(AESUtil.encrypt(plain, key));
+
+		assertTrue(encryptionService.isLegacy(legacy));
+		assertEquals(plain.length, encryptionService.plaintextLength(legacy, base64Key, LEGACY));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encryptionService.decryptRange(legacy, base64Key, LEGACY, 17, 70_000, out);
+		assertArrayEquals(Arrays.copyOfRange(plain, 17, 70_001), out.toByteArray());
+
+		try (var in = encryptionService.openLegacyPlaintext(legacy, base64Key)) {
+			assertArrayEquals(plain, in.readAllBytes());
+		}
+	}
+
+	@Test
+	void decryptRangeReturnsOnlyTheRequestedBytes() throws Exception {
+		SecretKey key = encryptionService.generateKey();
+		String base64Key = encryptionService.encodeKey(key);
+		byte[] plain = new byte[150_003];
+		new Random(7).nextBytes(plain);
+		CiphertextSource source = CiphertextSource.of(encryptionService.encrypt(plain, key));
+
+		assertEquals(plain.length, encryptionService.plaintextLength(source, base64Key, SNTL));
+
+		long[][] ranges = {{0, plain.length - 1}, {0, 0}, {17, 33}, {65_530, 131_080}, {plain.length - 5, plain.length - 1}};
+		for (long[] range : ranges) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			encryptionService.decryptRange(source, base64Key, SNTL, range[0], range[1], out);
+			assertArrayEquals(Arrays.copyOfRange(plain, (int) range[0], (int) range[1] + 1), out.toByteArray());
+		}
+	}
+
+	@Test
+	void parallelSegmentsMatchTheSequentialFormat() throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			// Parallel from the second segment on, so small inputs exercise the switch-over
+			EncryptionService parallel = new EncryptionService(pool, DataSize.ofBytes(EncryptionService.SEGMENT_SIZE));
+			SecretKey key = parallel.generateKey();
+			String base64Key = parallel.encodeKey(key);
+			byte[] plain = new byte[20 * EncryptionService.SEGMENT_SIZE + 11];
+			new Random(11).nextBytes(plain);
+
+			byte[] sealed = parallel.encrypt(plain, key);
+			assertArrayEquals(plain, encryptionService.decrypt(sealed, base64Key));
+			assertArrayEquals(plain, parallel.decrypt(encryptionService.encrypt(plain, key), base64Key));
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			parallel.decryptRange(CiphertextSource.of(sealed), base64Key, SNTL, 100_000, 1_000_000, out);
+			assertArrayEquals(Arrays.copyOfRange(plain, 100_000, 1_000_001), out.toByteArray());
+
+			byte[] flipped = sealed.clone();
+			flipped[flipped.length / 2] ^= 1;
+			IOException e = assertThrows(IOException.class, () -> parallel.decrypt(flipped, base64Key));
+			assertTrue(e.getCause() instanceof AEADBadTagException);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void partsEncryptedSeparatelyConcatenateIntoOneContainer() throws Exception {
+		SecretKey key = encryptionService.generateKey();
+		String base64Key = encryptionService.encodeKey(key);
+		int segment = EncryptionService.SEGMENT_SIZE;
+		int partSize = 2 * segment;
+		byte[] plain = new byte[5 * segment + 100];
+		new Random(5).nextBytes(plain);
+
+		SntlHeader header = encryptionService.newHeader();
+		ByteArrayOutputStream container = new ByteArrayOutputStream();
+		// Encrypted out of order, as chunks may arrive
+		byte[][] parts = new byte[3][];
+		for (int i : new int[]{2, 0, 1}) {
+			int from = i * partSize;
+			int to = Math.min(from + partSize, plain.length);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try (SntlEncryptingOutputStream part = encryptionService.newPartStream(out, key, header, (long) from / segment, i == 2)) {
+				part.write(plain, from, to - from);
+			}
+			parts[i] = out.toByteArray();
+		}
+		for (byte[] part : parts) {
+			container.write(part);
+		}
+
+		assertArrayEquals(plain, encryptionService.decrypt(container.toByteArray(), base64Key));
+
+		// A part that stops inside a segment cannot be a middle part
+		SntlEncryptingOutputStream shortPart = encryptionService.newPartStream(new ByteArrayOutputStream(), key, header, 2, false);
+		shortPart.write(plain, 0, 10);
+		assertThrows(IOException.class, shortPart::finish);
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.dto.FileAccessDto;
+import com.sentinel.secure_vault.repository.FileRepository;
+import com.sentinel.secure_vault.repository.FileShareRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FileAccessCacheTests {
+
+	private static final long FILE = 7;
+	private static final long OWNER = 1;
+	private static final long RECIPIENT = 2;
+
+	@Test
+	void revokeOnAnotherInstanceIsSeenWithinTheTtl() {
+		AtomicLong nanos = new AtomicLong();
+		FileRepository files = mock(FileRepository.class);
+		FileShareRepository shares = mock(FileShareRepository.class);
+		when(files.findAccessById(FILE)).thenReturn(Optional.of(
+				new FileAccessDto(FILE, "a.txt", "text/plain", "ref", "key", 1, OWNER, "owner@test")));
+		when(shares.findRecipientIds(eq(FILE), any())).thenReturn(List.of(RECIPIENT));
+		FileAccessCache cache = new FileAccessCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry(), nanos::get);
+		ReflectionTestUtils.setField(cache, "fileRepository", files);
+		ReflectionTestUtils.setField(cache, "fileShareRepository", shares);
+
+		assertTrue(cache.canRead(cache.get(FILE), RECIPIENT));
+
+		// Revoked by another instance: this one is not told and answers from its entry until it expires
+		when(shares.findRecipientIds(eq(FILE), any())).thenReturn(List.of());
+		nanos.addAndGet(Duration.ofSeconds(59).toNanos());
+		assertTrue(cache.canRead(cache.get(FILE), RECIPIENT));
+
+		nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+		assertFalse(cache.canRead(cache.get(FILE), RECIPIENT));
+		assertTrue(cache.canRead(cache.get(FILE), OWNER));
+	}
+}
@@ -0,0 +1,320 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.dto.ShareResultDto;
+import com.sentinel.secure_vault.model.ContentReference;
+import com.sentinel.secure_vault.model.FileShare;
+import com.sentinel.secure_vault.model.User;
+import com.sentinel.secure_vault.repository.ContentReferenceRepository;
+import com.sentinel.secure_vault.repository.FileRepository;
+import com.sentinel.secure_vault.repository.FileShareRepository;
+import com.sentinel.secure_vault.repository.UserRepository;
+import com.sentinel.secure_vault.storage.BlobStore;
+import com.sentinel.secure_vault.storage.PendingBlob;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs with app.storage.dedup on (application-h2.yaml)
+@SpringBootTest
+@ActiveProfiles("h2")
+class FileServiceTests {
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private FileRepository fileRepository;
+
+	@Autowired
+	private ContentReferenceRepository contentReferenceRepository;
+
+	@Autowired
+	private FileShareRepository fileShareRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BlobStore blobStore;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private FilePurge filePurge;
+
+	@Test
+	void referenceCountOnlyHitsZeroOnceAndThenStaysThere() {
+		User owner = newUser();
+		ContentReference reference = new ContentReference();
+		reference.setBlobRef(UUID.randomUUID().toString().replace("-", ""));
+		reference.setOwner(owner);
+		reference.setContentHash(UUID.randomUUID().toString());
+		reference.setRefCount(1);
+		contentReferenceRepository.save(reference);
+		String ref = reference.getBlobRef();
+
+		assertEquals(1, contentReferenceRepository.acquire(ref));
+		assertEquals(1, contentReferenceRepository.release(ref));
+		// Still used by one file
+		assertEquals(0, contentReferenceRepository.deleteIfUnreferenced(ref));
+		assertEquals(1, contentReferenceRepository.release(ref));
+
+		// Last reference gone: it cannot be taken again, and only one caller gets to delete the blob
+		assertEquals(0, contentReferenceRepository.acquire(ref));
+		assertEquals(0, contentReferenceRepository.release(ref));
+		assertEquals(1, contentReferenceRepository.deleteIfUnreferenced(ref));
+		assertEquals(0, contentReferenceRepository.deleteIfUnreferenced(ref));
+	}
+
+	@Test
+	void identicalUploadsShareOneBlobPerOwner() throws Exception {
+		User owner = newUser();
+		User other = newUser();
+		byte[] content = "same content".getBytes(StandardCharsets.UTF_8);
+
+		long first = upload(owner, content);
+		long second = upload(owner, content);
+		long foreign = upload(other, content);
+
+		String ref = fileRepository.findById(first).orElseThrow().getBlobRef();
+		assertEquals(ref, fileRepository.findById(second).orElseThrow().getBlobRef());
+		assertNotEquals(ref, fileRepository.findById(foreign).orElseThrow().getBlobRef());
+		assertEquals(2, contentReferenceRepository.findById(ref).orElseThrow().getRefCount());
+		// Each copy still counts against the quota
+		assertEquals(2L * content.length, userRepository.findUsedBytesByEmail(owner.getEmail()).orElseThrow());
+
+		fileService.deleteFile(first, owner.getEmail());
+		assertEquals(1, contentReferenceRepository.findById(ref).orElseThrow().getRefCount());
+		assertTrue(blobStore.exists(ref));
+	}
+
+	@Test
+	void duplicateOfContentWhoseLastFileIsBeingDeletedIsStoredAsNew() throws Exception {
+		User owner = newUser();
+		byte[] content = "deleted meanwhile".getBytes(StandardCharsets.UTF_8);
+		long first = upload(owner, content);
+		String ref = fileRepository.findById(first).orElseThrow().getBlobRef();
+
+		// Hidden by a delete that has not dropped its content reference yet
+		jdbcTemplate.update("UPDATE secure_files SET deleted_at = ? WHERE id = ?", LocalDateTime.now(), first);
+
+		long second = upload(owner, content);
+		String copy = fileRepository.findById(second).orElseThrow().getBlobRef();
+		assertNotEquals(ref, copy);
+		assertTrue(blobStore.exists(copy));
+		// The reference taken for the duplicate was given back
+		assertEquals(1, contentReferenceRepository.findById(ref).orElseThrow().getRefCount());
+	}
+
+	@Test
+	void batchShareAndRevokeReportEveryPair() throws Exception {
+		User owner = newUser();
+		User recipient = newUser();
+		User stranger = newUser();
+		long first = upload(owner, "first".getBytes(StandardCharsets.UTF_8));
+		long second = upload(owner, "second".getBytes(StandardCharsets.UTF_8));
+		long foreign = upload(stranger, "foreign".getBytes(StandardCharsets.UTF_8));
+		String unknown = UUID.randomUUID() + "@test.local";
+		fileService.shareFile(first, owner.getEmail(), recipient.getEmail());
+
+		Map<String, String> shared = statuses(fileService.shareFiles(List.of(first, second, foreign),
+				List.of(recipient.getEmail(), owner.getEmail(), unknown), owner.getEmail()));
+		assertEquals(ShareResultDto.ALREADY_SHARED, shared.get(first + " " + recipient.getEmail()));
+		assertEquals(ShareResultDto.GRANTED, shared.get(second + " " + recipient.getEmail()));
+		assertEquals(ShareResultDto.OWN_FILE, shared.get(second + " " + owner.getEmail()));
+		assertEquals(ShareResultDto.NOT_REGISTERED, shared.get(first + " " + unknown));
+		assertEquals(ShareResultDto.NOT_OWNER, shared.get(foreign + " " + recipient.getEmail()));
+		assertEquals(List.of(recipient.getEmail()), fileService.getFileShares(second, owner.getEmail()));
+
+		Map<String, String> revoked = statuses(fileService.revokeFiles(List.of(first, second),
+				List.of(recipient.getEmail(), stranger.getEmail()), owner.getEmail()));
+		assertEquals(ShareResultDto.REVOKED, revoked.get(first + " " + recipient.getEmail()));
+		assertEquals(ShareResultDto.REVOKED, revoked.get(second + " " + recipient.getEmail()));
+		assertEquals(ShareResultDto.NOT_SHARED, revoked.get(first + " " + stranger.getEmail()));
+		assertTrue(fileService.getFileShares(first, owner.getEmail()).isEmpty());
+		assertTrue(fileService.getFileShares(second, owner.getEmail()).isEmpty());
+	}
+
+	@Test
+	void aFileIsSharedWithAUserAtMostOnce() throws Exception {
+		User owner = newUser();
+		User recipient = newUser();
+		long fileId = upload(owner, "shared once".getBytes(StandardCharsets.UTF_8));
+
+		assertTrue(fileService.shareFile(fileId, owner.getEmail(), recipient.getEmail()).startsWith("Access granted"));
+		assertTrue(fileService.shareFile(fileId, owner.getEmail(), recipient.getEmail()).startsWith("File is already shared"));
+
+		// Whatever the code path, the database refuses a second row for the pair
+		FileShare duplicate = new FileShare();
+		duplicate.setFile(fileRepository.getReferenceById(fileId));
+		duplicate.setSharedWith(recipient);
+		assertThrows(DataIntegrityViolationException.class, () -> fileShareRepository.save(duplicate));
+		assertEquals(List.of(recipient.getEmail()), fileService.getFileShares(fileId, owner.getEmail()));
+	}
+
+	@Test
+	void shareChangesOnThisInstanceTakeEffectAtOnce() throws Exception {
+		User owner = newUser();
+		User recipient = newUser();
+		long fileId = upload(owner, "revoked".getBytes(StandardCharsets.UTF_8));
+		// Cached before the share: the recipient is not in the entry yet
+		assertThrows(RuntimeException.class, () -> fileService.openFileStream(fileId, recipient.getEmail()));
+
+		fileService.shareFile(fileId, owner.getEmail(), recipient.getEmail());
+		fileService.openFileStream(fileId, recipient.getEmail());
+
+		fileService.revokeAccess(fileId, owner.getEmail(), recipient.getEmail());
+		assertThrows(RuntimeException.class, () -> fileService.openFileStream(fileId, recipient.getEmail()));
+
+		fileService.shareFiles(List.of(fileId), List.of(recipient.getEmail()), owner.getEmail());
+		fileService.openFileStream(fileId, recipient.getEmail());
+
+		fileService.revokeFiles(List.of(fileId), List.of(recipient.getEmail()), owner.getEmail());
+		assertThrows(RuntimeException.class, () -> fileService.openFileStream(fileId, recipient.getEmail()));
+		fileService.openFileStream(fileId, owner.getEmail());
+	}
+
+	@Test
+	void concurrentDeletesOfAFileReleaseItOnlyOnce() throws Exception {
+		User owner = newUser();
+		byte[] content = "deleted twice".getBytes(StandardCharsets.UTF_8);
+		long fileId = upload(owner, content);
+		long copyId = upload(owner, content);
+		String ref = fileRepository.findById(copyId).orElseThrow().getBlobRef();
+
+		CountDownLatch deleted = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+		try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+			// The first delete holds its transaction open while the second one starts
+			Future<?> first = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+				fileService.deleteFile(fileId, owner.getEmail());
+				deleted.countDown();
+				try {
+					commit.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}));
+			deleted.await();
+			Future<?> second = executor.submit(() -> fileService.deleteFile(fileId, owner.getEmail()));
+			Thread.sleep(300);
+			commit.countDown();
+
+			first.get();
+			ExecutionException lost = assertThrows(ExecutionException.class, second::get);
+			assertEquals("File not found", lost.getCause().getMessage());
+		}
+
+		// Only the first delete gave back the bytes and dropped a reference; the copy keeps both
+		assertEquals(content.length, userRepository.findUsedBytesByEmail(owner.getEmail()).orElseThrow());
+		assertEquals(1, contentReferenceRepository.findById(ref).orElseThrow().getRefCount());
+	}
+
+	@Test
+	void purgeKeepsContentThatIsStillReferenced() throws Exception {
+		User owner = newUser();
+		User recipient = newUser();
+		byte[] content = "purged later".getBytes(StandardCharsets.UTF_8);
+		long first = upload(owner, content);
+		long second = upload(owner, content);
+		String ref = fileRepository.findById(first).orElseThrow().getBlobRef();
+		fileService.shareFile(first, owner.getEmail(), recipient.getEmail());
+
+		// Tombstoned: hidden at once, shares gone, space given back
+		fileService.deleteFile(first, owner.getEmail());
+		assertTrue(fileService.getAllFiles(owner.getEmail()).stream().noneMatch(file -> file.getId() == first));
+		assertThrows(RuntimeException.class, () -> fileService.openFileStream(first, owner.getEmail()));
+		assertThrows(RuntimeException.class, () -> fileService.openFileStream(first, recipient.getEmail()));
+		assertEquals(content.length, userRepository.findUsedBytesByEmail(owner.getEmail()).orElseThrow());
+
+		// The row goes, the blob stays for the copy
+		filePurge.purge();
+		assertEquals(0, rows(first));
+		assertTrue(blobStore.exists(ref));
+
+		fileService.deleteFile(second, owner.getEmail());
+		filePurge.purge();
+		assertEquals(0, rows(second));
+		assertFalse(blobStore.exists(ref));
+	}
+
+	@Test
+	void retiredBlobsAreOnlyDeletedAfterTheGracePeriod() throws Exception {
+		String expired = storeBlob("retired long ago");
+		String recent = storeBlob("retired just now");
+		String inUse = fileRepository.findById(upload(newUser(), "still a file".getBytes(StandardCharsets.UTF_8)))
+				.orElseThrow().getBlobRef();
+		retire(expired, LocalDateTime.now().minusHours(2));
+		retire(recent, LocalDateTime.now());
+		retire(inUse, LocalDateTime.now().minusHours(2));
+
+		// app.storage.purge.retired-grace: 1h; downloads opened on the old copy have that long
+		filePurge.purge();
+		assertFalse(blobStore.exists(expired));
+		assertTrue(blobStore.exists(recent));
+		assertTrue(blobStore.exists(inUse));
+		assertEquals(List.of(recent), jdbcTemplate.queryForList(
+				"SELECT blob_ref FROM retired_blobs WHERE blob_ref IN (?, ?, ?)", String.class, expired, recent, inUse));
+	}
+
+	private String storeBlob(String content) throws Exception {
+		try (PendingBlob pending = blobStore.create()) {
+			pending.outputStream().write(content.getBytes(StandardCharsets.UTF_8));
+			return pending.commit();
+		}
+	}
+
+	private void retire(String ref, LocalDateTime at) {
+		jdbcTemplate.update("INSERT INTO retired_blobs (blob_ref, retired_at) VALUES (?, ?)", ref, at);
+	}
+
+	private int rows(long fileId) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM secure_files WHERE id = ?", Integer.class, fileId);
+	}
+
+	private static Map<String, String> statuses(List<ShareResultDto> results) {
+		return results.stream().collect(Collectors.toMap(result -> result.getFileId() + " " + result.getEmail(),
+				ShareResultDto::getStatus));
+	}
+
+	private long upload(User owner, byte[] content) throws Exception {
+		String result = fileService.storeFile(
+				new MockMultipartFile("file", "a.txt", "text/plain", content), owner.getEmail());
+		return Long.parseLong(result.substring(result.lastIndexOf(' ') + 1));
+	}
+
+	private User newUser() {
+		User user = new User();
+		user.setEmail(UUID.randomUUID() + "@test.local");
+		user.setPassword("unused");
+		user.setRole("USER");
+		return userRepository.save(user);
+	}
+}
@@ -0,0 +1,65 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.service.LoginRateLimiter.TokenBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginRateLimiterTests {
+
+	@Test
+	void bucketGivesCapacityTokensThenSaysHowLongToWait() {
+		TokenBucket bucket = new TokenBucket(3, 0.1); // one token per 10 s
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, bucket.tryTake());
+		}
+		long wait = bucket.tryTake();
+		assertTrue(wait >= 9 && wait <= 10, "wait " + wait);
+
+		bucket.giveBack();
+		assertEquals(0, bucket.tryTake());
+		assertTrue(bucket.tryTake() > 0);
+	}
+
+	@Test
+	void bucketRefillsOverTimeButNotBeyondCapacity() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(2, 100); // one token per 10 ms
+		assertEquals(0, bucket.tryTake());
+		assertEquals(0, bucket.tryTake());
+		assertTrue(bucket.tryTake() > 0);
+
+		Thread.sleep(100); // ten tokens' worth, capped at two
+		assertEquals(0, bucket.tryTake());
+		assertEquals(0, bucket.tryTake());
+		assertTrue(bucket.tryTake() > 0);
+	}
+
+	@Test
+	void failedLoginsWearDownTheClientAndTheAccountSeparately() {
+		// ip-capacity 3, account-capacity 2, both refilling at 1/min
+		LoginRateLimiter limiter = new LoginRateLimiter(3, 1, 2, 1, Duration.ofMinutes(30), 1000, new SimpleMeterRegistry());
+
+		limiter.acquire("10.0.0.1", "a@test");
+		limiter.acquire("10.0.0.2", "A@Test ");
+		TooManyRequestsException byAccount = assertThrows(TooManyRequestsException.class,
+				() -> limiter.acquire("10.0.0.3", "a@test"));
+		assertTrue(byAccount.getMessage().contains("for this account"));
+		assertTrue(byAccount.getRetryAfterSeconds() > 0);
+
+		// A successful login gives the account its token back
+		limiter.succeeded("a@test");
+		assertDoesNotThrow(() -> limiter.acquire("10.0.0.3", "a@test"));
+
+		limiter.acquire("10.0.0.1", "b@test");
+		limiter.acquire("10.0.0.1", "c@test");
+		TooManyRequestsException byIp = assertThrows(TooManyRequestsException.class,
+				() -> limiter.acquire("10.0.0.1", "d@test"));
+		assertEquals("Too many login attempts. Please try again later.", byIp.getMessage());
+	}
+}
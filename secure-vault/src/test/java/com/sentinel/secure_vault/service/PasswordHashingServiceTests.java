@@ -0,0 +1,89 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.service.PasswordHashingService.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingServiceTests {
+
+	private final CountDownLatch started = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final List<String> order = new CopyOnWriteArrayList<>();
+
+	// One thread, room for two waiting jobs
+	private final PasswordHashingService hashing = new PasswordHashingService(1, 2, new SimpleMeterRegistry());
+
+	@AfterEach
+	void shutdown() {
+		release.countDown();
+		hashing.shutdown();
+	}
+
+	@Test
+	void fullQueueIsTurnedAwayAtOnceAndLoginsGoFirst() throws Exception {
+		ReflectionTestUtils.setField(hashing, "passwordEncoder", new BlockingEncoder());
+
+		CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hashing.encode("first", Priority.LOGIN));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		CompletableFuture<String> update = CompletableFuture.supplyAsync(() -> hashing.encode("update", Priority.ACCOUNT_UPDATE));
+		waitForQueue(1);
+		CompletableFuture<String> login = CompletableFuture.supplyAsync(() -> hashing.encode("login", Priority.LOGIN));
+		waitForQueue(2);
+
+		TooManyRequestsException busy = assertThrows(TooManyRequestsException.class,
+				() -> hashing.encode("rejected", Priority.LOGIN));
+		assertEquals(1, busy.getRetryAfterSeconds());
+
+		release.countDown();
+		assertEquals("hash:first", running.get(5, TimeUnit.SECONDS));
+		assertEquals("hash:update", update.get(5, TimeUnit.SECONDS));
+		assertEquals("hash:login", login.get(5, TimeUnit.SECONDS));
+		assertEquals(List.of("first", "login", "update"), order);
+
+		// Finished jobs give their places back
+		assertEquals("hash:later", hashing.encode("later", Priority.ACCOUNT_UPDATE));
+	}
+
+	private void waitForQueue(int size) throws InterruptedException {
+		ThreadPoolExecutor pool = (ThreadPoolExecutor) ReflectionTestUtils.getField(hashing, "pool");
+		for (int i = 0; i < 500 && pool.getQueue().size() < size; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(size, pool.getQueue().size());
+	}
+
+	// Holds the first job until the test releases it, and records the order jobs ran in
+	private class BlockingEncoder implements PasswordEncoder {
+
+		@Override
+		public String encode(CharSequence rawPassword) {
+			order.add(rawPassword.toString());
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "hash:" + rawPassword;
+		}
+
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			return encodedPassword.equals(encode(rawPassword));
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.sentinel.secure_vault.service;
+
+import com.sentinel.secure_vault.dto.UserRegistrationDto;
+import com.sentinel.secure_vault.model.OutboundMail;
+import com.sentinel.secure_vault.model.OutboundMail.Status;
+import com.sentinel.secure_vault.model.User;
+import com.sentinel.secure_vault.repository.OutboundMailRepository;
+import com.sentinel.secure_vault.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class UserServiceTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private OutboundMailRepository outboundMailRepository;
+
+	@Autowired
+	private MailWorker mailWorker;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void resetTokenIsOnlyAcceptedUntilItExpires() {
+		String email = register();
+		userService.forgotPassword(email);
+		User user = userRepository.findByEmail(email).orElseThrow();
+		assertNotNull(user.getResetTokenExpiresAt());
+		assertTrue(user.getResetTokenExpiresAt().isAfter(LocalDateTime.now()));
+
+		jdbcTemplate.update("UPDATE users SET reset_token_expires_at = ? WHERE id = ?",
+				LocalDateTime.now().minusMinutes(1), user.getId());
+		RuntimeException rejected = assertThrows(RuntimeException.class,
+				() -> userService.resetPassword(user.getResetToken(), "new-password"));
+		assertEquals("Invalid or Expired Token", rejected.getMessage());
+
+		// A fresh token works once
+		userService.forgotPassword(email);
+		String token = userRepository.findByEmail(email).orElseThrow().getResetToken();
+		userService.resetPassword(token, "new-password");
+		assertThrows(RuntimeException.class, () -> userService.resetPassword(token, "other-password"));
+	}
+
+	@Test
+	void deadMailDoesNotKeepTheResetLink() throws InterruptedException {
+		String email = register();
+		userService.forgotPassword(email);
+
+		// No SMTP server runs in tests, so the next attempt fails; make it the last one (max-attempts: 8)
+		jdbcTemplate.update("UPDATE outbound_mail SET attempts = 7 WHERE recipient = ?", email);
+		OutboundMail mail = null;
+		for (int i = 0; i < 100; i++) {
+			mailWorker.deliverDue();
+			mail = outboundMailRepository.findAll().stream()
+					.filter(m -> m.getRecipient().equals(email)).findFirst().orElseThrow();
+			if (mail.getStatus() == Status.DEAD) {
+				break;
+			}
+			Thread.sleep(100);
+		}
+		assertEquals(Status.DEAD, mail.getStatus());
+		assertNull(mail.getBody());
+		assertNotNull(mail.getLastError());
+	}
+
+	private String register() {
+		String email = UUID.randomUUID() + "@test";
+		UserRegistrationDto request = new UserRegistrationDto();
+		request.setEmail(email);
+		request.setPassword("password");
+		userService.registerUser(request);
+		return email;
+	}
+}
@@ -0,0 +1,64 @@
+package com.sentinel.secure_vault.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalBlobStoreTests {
+
+	@TempDir
+	Path root;
+
+	@Test
+	void committedBlobIsReadableByRangeAndTransfer() throws Exception {
+		LocalBlobStore store = new LocalBlobStore(root.toString());
+		byte[] content = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+		String ref;
+		try (PendingBlob pending = store.create()) {
+			pending.outputStream().write(content);
+			ref = pending.commit();
+		}
+
+		assertTrue(store.exists(ref));
+		assertTrue(Files.exists(root.resolve(ref.substring(0, 2)).resolve(ref.substring(2, 4)).resolve(ref + ".sntl")));
+
+		StoredBlob blob = store.open(ref);
+		assertEquals(content.length, blob.size());
+		try (InputStream in = blob.open(4, 6)) {
+			assertArrayEquals("456789".getBytes(StandardCharsets.US_ASCII), in.readAllBytes());
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(content.length, blob.transferTo(0, content.length, Channels.newChannel(out)));
+		assertArrayEquals(content, out.toByteArray());
+
+		store.delete(ref);
+		assertFalse(store.exists(ref));
+	}
+
+	@Test
+	void uncommittedBlobLeavesNothingBehind() throws Exception {
+		LocalBlobStore store = new LocalBlobStore(root.toString());
+
+		try (PendingBlob pending = store.create()) {
+			pending.outputStream().write(new byte[1024]);
+		}
+
+		try (var tmpFiles = Files.list(root.resolve(".tmp"))) {
+			assertEquals(0, tmpFiles.count());
+		}
+	}
+
+}